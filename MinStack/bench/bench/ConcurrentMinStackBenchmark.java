@@ -0,0 +1,64 @@
+package bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import util.ConcurrentMinStack;
+import util.MinStack;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of a stack shared by several threads, each operation pushing a value, reading the minimum and popping.
+ * Compares {@link ConcurrentMinStack} with {@link MinStack} guarded by its monitor. Vary the thread count with
+ * <code>-t</code>.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+public class ConcurrentMinStackBenchmark {
+    private ConcurrentMinStack _concurrentStack;
+    private MinStack _lockedStack;
+
+    @Setup
+    public void setup() {
+        _concurrentStack = new ConcurrentMinStack();
+        _lockedStack = new MinStack();
+
+        // keeps the stacks from running empty between a push and its pop
+        _concurrentStack.push(Integer.MIN_VALUE);
+        _lockedStack.push(Integer.MIN_VALUE);
+    }
+
+    @Benchmark
+    public int lockFree() {
+        ConcurrentMinStack stack = _concurrentStack;
+
+        stack.push(42);
+
+        return stack.min() + stack.pop();
+    }
+
+    @Benchmark
+    public int locked() {
+        MinStack stack = _lockedStack;
+
+        synchronized (stack) {
+            stack.push(42);
+
+            return stack.min() + stack.pop();
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import util.MinStack;
+
+import java.util.Random;
+import java.util.Stack;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares {@link MinStack} with the former implementation on top of <code>java.util.Stack&lt;Integer&gt;</code>.
+ * The former one failed on the first push and did not restore the minimum on pop, so it is benchmarked in its
+ * corrected form, with the minima tracked in a second boxed stack. Each operation pushes a batch of values, querying
+ * the minimum after every push, and pops the batch again.
+ *
+ * Requires JMH on the classpath, run with <code>-prof gc</code> to compare allocation rates.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MinStackBenchmark {
+    /**
+     * former implementation, corrected
+     */
+    private static class BoxedMinStack {
+        private final Stack<Integer> _stack = new Stack<>();
+        private final Stack<Integer> _mins = new Stack<>();
+
+        public Integer min() {
+            return _mins.isEmpty() ? null : _mins.peek();
+        }
+
+        public void push(int el) {
+            _mins.push(_mins.isEmpty() ? el : Math.min(el, _mins.peek()));
+            _stack.push(el);
+        }
+
+        public Integer pop() {
+            _mins.pop();
+
+            return _stack.pop();
+        }
+    }
+
+    @Param({"1000", "100000"})
+    public int _batchSize;
+
+    private int[] _values;
+    private MinStack _minStack;
+    private BoxedMinStack _boxedMinStack;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(15);
+
+        _values = new int[_batchSize];
+
+        for (int i = 0; i < _values.length; i++) _values[i] = random.nextInt();
+
+        _minStack = new MinStack();
+        _boxedMinStack = new BoxedMinStack();
+    }
+
+    @Benchmark
+    public long primitive() {
+        MinStack stack = _minStack;
+        long sum = 0;
+
+        for (int value : _values) {
+            stack.push(value);
+
+            sum += stack.min();
+        }
+
+        while (!stack.isEmpty()) sum += stack.pop();
+
+        return sum;
+    }
+
+    @Benchmark
+    public long boxed() {
+        BoxedMinStack stack = _boxedMinStack;
+        long sum = 0;
+
+        for (int value : _values) {
+            stack.push(value);
+
+            sum += stack.min();
+        }
+
+        for (int i = 0; i < _values.length; i++) sum += stack.pop();
+
+        return sum;
+    }
+}
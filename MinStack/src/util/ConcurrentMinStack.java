@@ -0,0 +1,101 @@
+package util;
+
+import java.util.EmptyStackException;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Thread-safe stack of ints that reports its minimum in O(1), as a lock-free Treiber stack. Each node carries the
+ * minimum and the size of the stack up to itself, so a node once published describes an immutable snapshot of the
+ * stack below. Reading the minimum, the top element or the size is a single volatile read and therefore wait-free,
+ * push and pop retry a compare-and-set on the head until they win against concurrent modifications.
+ */
+public class ConcurrentMinStack {
+    private final static class Node {
+        private final int _value;
+        private final int _min;
+        private final int _size;
+        private final Node _next;
+
+        private Node(int value, Node next) {
+            _value = value;
+            _min = next == null ? value : Math.min(value, next._min);
+            _size = next == null ? 1 : next._size + 1;
+            _next = next;
+        }
+    }
+
+    private final AtomicReference<Node> _head = new AtomicReference<>();
+
+    /**
+     * Amount of elements at the time of the call.
+     *
+     * @return      size
+     */
+    public int size() {
+        Node head = _head.get();
+
+        return head == null ? 0 : head._size;
+    }
+
+    /**
+     * Whether there are no elements at the time of the call.
+     *
+     * @return      true if empty
+     */
+    public boolean isEmpty() {
+        return _head.get() == null;
+    }
+
+    /**
+     * Smallest element on the stack at the time of the call.
+     *
+     * @return      minimum
+     * @throws EmptyStackException      the stack is empty
+     */
+    public int min() {
+        Node head = _head.get();
+
+        if (head == null) throw new EmptyStackException();
+
+        return head._min;
+    }
+
+    /**
+     * Top element at the time of the call, without removing it.
+     *
+     * @return      top element
+     * @throws EmptyStackException      the stack is empty
+     */
+    public int peek() {
+        Node head = _head.get();
+
+        if (head == null) throw new EmptyStackException();
+
+        return head._value;
+    }
+
+    public void push(int el) {
+        while (true) {
+            Node head = _head.get();
+
+            if (_head.compareAndSet(head, new Node(el, head))) return;
+        }
+    }
+
+    /**
+     * Removes the top element.
+     *
+     * @return      removed element
+     * @throws EmptyStackException      the stack is empty
+     */
+    public int pop() {
+        while (true) {
+            Node head = _head.get();
+
+            if (head == null) throw new EmptyStackException();
+
+            // nodes are never reused, so a head that is still current has not been popped and pushed again in between
+            if (_head.compareAndSet(head, head._next)) return head._value;
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package util;
+
+import java.util.Arrays;
+import java.util.EmptyStackException;
+
+/**
+ * Stack of ints that reports its minimum in O(1). Next to the values, the minimum of each prefix is kept in a parallel
+ * array, so popping restores the minimum of the remaining elements. Elements are never boxed. Not thread-safe, see
+ * {@link ConcurrentMinStack} for sharing between threads.
+ */
+public class MinStack {
+    private final static int DEFAULT_CAPACITY = 16;
+
+    private int[] _values;
+    /**
+     * _mins[i] is the minimum of _values[0..i]
+     */
+    private int[] _mins;
+    private int _size = 0;
+
+    /**
+     * Amount of elements.
+     *
+     * @return      size
+     */
+    public int size() {
+        return _size;
+    }
+
+    /**
+     * Whether there are no elements.
+     *
+     * @return      true if empty
+     */
+    public boolean isEmpty() {
+        return _size == 0;
+    }
+
+    /**
+     * Smallest element currently on the stack.
+     *
+     * @return      minimum
+     * @throws EmptyStackException      the stack is empty
+     */
+    public int min() {
+        if (_size == 0) throw new EmptyStackException();
+
+        return _mins[_size - 1];
+    }
+
+    /**
+     * Top element without removing it.
+     *
+     * @return      top element
+     * @throws EmptyStackException      the stack is empty
+     */
+    public int peek() {
+        if (_size == 0) throw new EmptyStackException();
+
+        return _values[_size - 1];
+    }
+
+    public void push(int el) {
+        if (_size == _values.length) {
+            int capacity = Math.max(DEFAULT_CAPACITY, _values.length * 2);
+
+            _values = Arrays.copyOf(_values, capacity);
+            _mins = Arrays.copyOf(_mins, capacity);
+        }
+
+        _values[_size] = el;
+        _mins[_size] = _size == 0 ? el : Math.min(el, _mins[_size - 1]);
+        _size++;
+    }
+
+    /**
+     * Removes the top element.
+     *
+     * @return      removed element
+     * @throws EmptyStackException      the stack is empty
+     */
+    public int pop() {
+        if (_size == 0) throw new EmptyStackException();
+
+        return _values[--_size];
+    }
+
+    /**
+     * Removes all elements, keeping the allocated capacity.
+     */
+    public void clear() {
+        _size = 0;
+    }
+
+    public MinStack() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates an empty stack.
+     *
+     * @param initialCapacity       amount of elements the stack holds before growing
+     */
+    public MinStack(int initialCapacity) {
+        if (initialCapacity < 0) throw new IllegalArgumentException("negative capacity " + initialCapacity);
+
+        _values = new int[initialCapacity];
+        _mins = new int[initialCapacity];
+    }
+}
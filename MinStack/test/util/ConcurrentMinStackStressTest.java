@@ -0,0 +1,208 @@
+package util;
+
+import java.util.ArrayList;
+import java.util.EmptyStackException;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Stress test of {@link ConcurrentMinStack} under contention. The module has no test framework, run the main method,
+ * which exits with an error if a check fails.
+ */
+public class ConcurrentMinStackStressTest {
+    private final static int THREADS = Math.max(4, Runtime.getRuntime().availableProcessors());
+    private final static int OPERATIONS = 200_000;
+
+    private static void check(boolean condition, String message) {
+        if (!condition) throw new AssertionError(message);
+    }
+
+    private static int[] shuffledIndices(Random random) {
+        int[] indices = new int[OPERATIONS];
+
+        for (int i = 0; i < indices.length; i++) indices[i] = i;
+
+        for (int i = indices.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int swap = indices[i];
+
+            indices[i] = indices[j];
+            indices[j] = swap;
+        }
+
+        return indices;
+    }
+
+    /**
+     * All threads push disjoint values at once. Afterwards, every value must be on the stack exactly once and the
+     * minimum has to match the remaining elements after every pop.
+     */
+    private static void concurrentPush() throws Exception {
+        ConcurrentMinStack stack = new ConcurrentMinStack();
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+
+        for (int t = 0; t < THREADS; t++) {
+            int thread = t;
+
+            futures.add(executor.submit(() -> {
+                start.await();
+
+                int[] indices = shuffledIndices(new Random(thread));
+
+                for (int index : indices) {
+                    // distinct per thread and index
+                    stack.push(index * THREADS + thread);
+                }
+
+                return null;
+            }));
+        }
+
+        start.countDown();
+
+        for (Future<?> future : futures) future.get();
+
+        executor.shutdown();
+
+        int count = THREADS * OPERATIONS;
+
+        check(stack.size() == count, "size " + stack.size() + ", expected " + count);
+
+        int[] popped = new int[count];
+        int[] mins = new int[count];
+
+        for (int i = 0; i < count; i++) {
+            mins[i] = stack.min();
+            popped[i] = stack.pop();
+        }
+
+        check(stack.isEmpty(), "stack not empty");
+
+        int min = Integer.MAX_VALUE;
+        boolean[][] seen = new boolean[THREADS][OPERATIONS];
+
+        for (int i = count - 1; i >= 0; i--) {
+            min = Math.min(min, popped[i]);
+
+            check(mins[i] == min, "min " + mins[i] + " with " + (count - i) + " elements, expected " + min);
+
+            int thread = popped[i] % THREADS;
+            int index = popped[i] / THREADS;
+
+            check(!seen[thread][index], "value " + popped[i] + " popped twice");
+
+            seen[thread][index] = true;
+        }
+    }
+
+    /**
+     * Threads push and pop concurrently, each popping only after pushing more than it popped, so the bottom element
+     * is never removed and must remain the minimum for concurrent readers throughout.
+     */
+    private static void concurrentPushPop() throws Exception {
+        ConcurrentMinStack stack = new ConcurrentMinStack();
+
+        stack.push(Integer.MIN_VALUE);
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS + 1);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicBoolean running = new AtomicBoolean(true);
+        List<Future<long[]>> futures = new ArrayList<>();
+
+        for (int t = 0; t < THREADS; t++) {
+            int thread = t;
+
+            futures.add(executor.submit(() -> {
+                start.await();
+
+                Random random = new Random(thread);
+                long pushedSum = 0;
+                long poppedSum = 0;
+                int balance = 0;
+
+                for (int i = 0; i < OPERATIONS; i++) {
+                    if (balance > 0 && random.nextBoolean()) {
+                        poppedSum += stack.pop();
+                        balance--;
+                    } else {
+                        int value = random.nextInt(1000);
+
+                        stack.push(value);
+                        pushedSum += value;
+                        balance++;
+                    }
+                }
+
+                return new long[] {pushedSum, poppedSum, balance};
+            }));
+        }
+
+        Future<Long> reader = executor.submit(() -> {
+            start.await();
+
+            long reads = 0;
+
+            while (running.get()) {
+                try {
+                    check(stack.min() == Integer.MIN_VALUE, "bottom element lost its minimum");
+                    check(stack.size() >= 1, "bottom element popped");
+                } catch (EmptyStackException e) {
+                    throw new AssertionError("bottom element popped", e);
+                }
+
+                reads++;
+            }
+
+            return reads;
+        });
+
+        start.countDown();
+
+        long pushedSum = 0;
+        long poppedSum = 0;
+        long balance = 0;
+
+        for (Future<long[]> future : futures) {
+            long[] result = future.get();
+
+            pushedSum += result[0];
+            poppedSum += result[1];
+            balance += result[2];
+        }
+
+        running.set(false);
+
+        long reads = reader.get();
+
+        executor.shutdown();
+        executor.awaitTermination(1, TimeUnit.MINUTES);
+
+        check(stack.size() == balance + 1, "size " + stack.size() + ", expected " + (balance + 1));
+
+        long remainingSum = 0;
+
+        while (stack.size() > 1) remainingSum += stack.pop();
+
+        check(stack.pop() == Integer.MIN_VALUE, "bottom element replaced");
+        check(pushedSum == poppedSum + remainingSum, "pushed " + pushedSum + ", popped " + poppedSum + ", remaining " + remainingSum);
+
+        System.out.println("push/pop: " + THREADS + " threads, " + reads + " concurrent reads");
+    }
+
+    public static void main(String[] args) throws Exception {
+        long start = System.nanoTime();
+
+        concurrentPush();
+        concurrentPushPop();
+
+        System.out.println("passed in " + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms");
+    }
+}
@@ -0,0 +1,113 @@
+package bench;
+
+import core.Level;
+import core.LevelRun;
+import core.Position;
+import core.RobotAlgo;
+
+import javax.annotation.Nonnull;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Levels and algorithms shared by the benchmarks.
+ */
+class Fixtures {
+    /**
+     * Square level of flat terrain with a ramp of height 1 east of the center and a switch on the center tile. The
+     * robot starts on the center facing right.
+     *
+     * @param size      amount of tiles in each direction
+     * @return          level
+     */
+    @Nonnull
+    static Level level(int size) {
+        BitSet switches = new BitSet(size * size);
+        short[] heights = new short[size * size];
+
+        int center = size / 2;
+
+        switches.set(center * size + center);
+
+        if (center + 1 < size) heights[center * size + center + 1] = 1;
+
+        return new Level("bench " + size, size, size, switches, heights, new Position(center, center), LevelRun.DIR_RIGHT);
+    }
+
+    /**
+     * Same terrain as {@link #level(int)} as boxed matrices in [x][y] order.
+     */
+    @Nonnull
+    static Boolean[][] switchMap(int size) {
+        Boolean[][] switchMap = new Boolean[size][size];
+
+        for (int x = 0; x < size; x++) {
+            for (int y = 0; y < size; y++) {
+                switchMap[x][y] = x == size / 2 && y == size / 2;
+            }
+        }
+
+        return switchMap;
+    }
+
+    /**
+     * Same terrain as {@link #level(int)} as boxed matrices in [x][y] order.
+     */
+    @Nonnull
+    static Integer[][] heightMap(int size) {
+        Integer[][] heightMap = new Integer[size][size];
+
+        for (int x = 0; x < size; x++) {
+            for (int y = 0; y < size; y++) {
+                heightMap[x][y] = x == size / 2 + 1 && y == size / 2 ? 1 : 0;
+            }
+        }
+
+        return heightMap;
+    }
+
+    /**
+     * round trip from the center of {@link #level(int)}: jump onto the ramp, turn, jump back, turn
+     */
+    private final static String[] ROUND_TRIP = {"j", "l", "l", "j", "l", "l"};
+
+    /**
+     * round trip through the flat terrain south of the center: walk, turn, walk back, turn
+     */
+    private final static String[] WALK = {"r", "m", "l", "l", "m", "r"};
+
+    @Nonnull
+    private static String[] repeat(@Nonnull String[] pattern, int times, @Nonnull String... suffix) {
+        List<String> actions = new ArrayList<>();
+
+        for (int i = 0; i < times; i++) {
+            for (String action : pattern) actions.add(action);
+        }
+
+        for (String action : suffix) actions.add(action);
+
+        return actions.toArray(new String[0]);
+    }
+
+    /**
+     * Algorithm shapes exercising different parts of the interpreter on {@link #level(int)}.
+     *
+     * @param shape     <code>flat</code> (main group only), <code>nested</code> (main calls f2 calls f1) or
+     *                  <code>switches</code> (mostly switch toggles)
+     * @return          algorithm
+     */
+    @Nonnull
+    static RobotAlgo algo(@Nonnull String shape) {
+        switch (shape) {
+            case "flat":
+                return new RobotAlgo(repeat(ROUND_TRIP, 50, repeat(WALK, 50)), new String[0], new String[0]);
+            case "nested":
+                return new RobotAlgo(repeat(new String[]{"2", "1"}, 10), repeat(WALK, 2), repeat(new String[]{"1", "j", "l", "l", "j", "l", "l"}, 4));
+            case "switches":
+                return new RobotAlgo(repeat(new String[]{"s", "s", "1"}, 100, "s"), new String[]{"s", "s"}, new String[0]);
+        }
+
+        throw new IllegalArgumentException("unknown shape " + shape);
+    }
+}
@@ -0,0 +1,36 @@
+package bench;
+
+import core.Level;
+import core.LevelRun;
+import core.Position;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of building levels from boxed matrices.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class LevelBenchmark {
+    @Param({"5", "64", "512", "4096"})
+    public int _size;
+
+    private Boolean[][] _switchMap;
+    private Integer[][] _heightMap;
+
+    @Setup
+    public void setup() {
+        _switchMap = Fixtures.switchMap(_size);
+        _heightMap = Fixtures.heightMap(_size);
+    }
+
+    @Benchmark
+    public Level construct() {
+        return new Level("bench " + _size, _switchMap, _heightMap, new Position(_size / 2, _size / 2), LevelRun.DIR_RIGHT);
+    }
+}
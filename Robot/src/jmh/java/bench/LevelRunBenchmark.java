@@ -0,0 +1,45 @@
+package bench;
+
+import core.CountingActionHandler;
+import core.Level;
+import core.LevelRun;
+import core.RobotProgram;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of complete runs: construction of the run plus interpretation of the compiled program.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LevelRunBenchmark {
+    @Param({"5", "64", "512", "4096"})
+    public int _size;
+
+    @Param({"flat", "nested", "switches"})
+    public String _shape;
+
+    @Param({"none", "counting"})
+    public String _handler;
+
+    private Level _level;
+    private RobotProgram _program;
+    private LevelRun.ActionHandler _actionHandler;
+
+    @Setup
+    public void setup() {
+        _level = Fixtures.level(_size);
+        _program = RobotProgram.compile(Fixtures.algo(_shape));
+        _actionHandler = _handler.equals("counting") ? new CountingActionHandler() : LevelRun.ActionHandler.NONE;
+    }
+
+    @Benchmark
+    public LevelRun.Result exec() {
+        return new LevelRun(_level, _program, _actionHandler).exec();
+    }
+}
@@ -0,0 +1,60 @@
+package bench;
+
+import org.openjdk.jmh.annotations.*;
+import util.Matrix;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of transposing level maps.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class MatrixBenchmark {
+    @Param({"5", "64", "512", "4096"})
+    public int _size;
+
+    private Integer[][] _heightMap;
+    private int[][] _intHeightMap;
+    private byte[] _byteHeightMap;
+
+    @Setup
+    public void setup() {
+        _heightMap = Fixtures.heightMap(_size);
+        _intHeightMap = new int[_size][_size];
+        _byteHeightMap = new byte[_size * _size];
+
+        for (int x = 0; x < _size; x++) {
+            for (int y = 0; y < _size; y++) {
+                _intHeightMap[x][y] = _heightMap[x][y];
+                _byteHeightMap[x * _size + y] = (byte) (int) _heightMap[x][y];
+            }
+        }
+    }
+
+    @Benchmark
+    public Integer[][] transposeBoxed() {
+        return Matrix.transpose(_heightMap);
+    }
+
+    @Benchmark
+    public int[][] transposeInt() {
+        return Matrix.transpose(_intHeightMap);
+    }
+
+    @Benchmark
+    public byte[] transposeByte() {
+        return Matrix.transpose(_byteHeightMap, _size, _size);
+    }
+
+    @Benchmark
+    public int[][] transposeIntInPlace() {
+        Matrix.transposeInPlace(_intHeightMap);
+
+        return _intHeightMap;
+    }
+}
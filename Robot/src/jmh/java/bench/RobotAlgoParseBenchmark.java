@@ -0,0 +1,62 @@
+package bench;
+
+import core.RobotAlgo;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of reading algorithm files of different lengths.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RobotAlgoParseBenchmark {
+    /**
+     * amount of actions per group
+     */
+    @Param({"5", "50", "500"})
+    public int _actions;
+
+    private File _file;
+
+    @Setup
+    public void setup() throws IOException {
+        _file = File.createTempFile("algo", ".txt");
+
+        String[] keys = {"l", "r", "m", "j", "s", "1", "2"};
+
+        try (Writer writer = new OutputStreamWriter(Files.newOutputStream(_file.toPath()), StandardCharsets.UTF_8)) {
+            writer.write("Level bench\n");
+
+            for (String group : new String[]{"main", "f1", "f2"}) {
+                writer.write(group + ":");
+
+                for (int i = 0; i < _actions; i++) {
+                    writer.write(" " + keys[i % keys.length]);
+                }
+
+                writer.write("\n");
+            }
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        _file.delete();
+    }
+
+    @Benchmark
+    public RobotAlgo parse() throws IOException {
+        return new RobotAlgo(_file);
+    }
+}
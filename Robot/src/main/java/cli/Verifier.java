@@ -0,0 +1,484 @@
+package cli;
+
+import core.BinaryFormat;
+import core.Level;
+import core.LevelEvaluator;
+import core.LevelRegistry;
+import core.LevelRun;
+import core.RobotAlgo;
+import core.RobotAlgoArchive;
+import core.RobotAlgoFormatException;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Command line tool re-running a corpus of stored solutions against their levels. The levels come from a pack of
+ * {@link BinaryFormat} records indexed by a {@link LevelRegistry}, the solutions from either a text
+ * {@link RobotAlgoArchive} or a pack of binary algorithm records, each solution being matched to its level by
+ * {@link RobotAlgo#getAssociatedLevelName()}.
+ *
+ * Solutions are read in batches, which are run in parallel, and their outcomes written in archive order as tab
+ * separated lines <code>index level result steps remaining</code>, so the results of the same corpus and engine are
+ * identical byte for byte. Given the results of a previous run, differing outcomes are reported and the tool exits
+ * with status 1.
+ *
+ * <pre>
+ * Verifier [options] &lt;level pack&gt; &lt;solutions&gt;
+ *     --out &lt;file&gt;          results file, default results.tsv
+ *     --diff &lt;file&gt;         results of a previous run to compare against
+ *     --threads &lt;n&gt;        parallelism, default the amount of processors
+ *     --max-steps &lt;n&gt;      step budget per run, default unlimited
+ *     --max-depth &lt;n&gt;      call depth per run, default {@link LevelRun#DEFAULT_MAX_DEPTH}
+ *     --cache-mb &lt;n&gt;       memory of the levels kept loaded, default 256
+ * </pre>
+ */
+public class Verifier {
+    /**
+     * exit status if all outcomes matched or there was nothing to compare against
+     */
+    public final static int EXIT_OK = 0;
+    /**
+     * exit status if outcomes differ from the previous run
+     */
+    public final static int EXIT_DIFFERENCES = 1;
+    /**
+     * exit status on invalid arguments or unreadable input
+     */
+    public final static int EXIT_ERROR = 2;
+
+    /**
+     * result column of solutions whose level is not in the pack
+     */
+    public final static String MISSING_LEVEL = "MISSING_LEVEL";
+
+    private final static String HEADER = "#index\tlevel\tresult\tsteps\tremaining";
+
+    /**
+     * amount of solutions read ahead and run in parallel
+     */
+    private final static int BATCH_SIZE = 1 << 12;
+
+    /**
+     * maximum amount of differences listed individually
+     */
+    private final static int MAX_REPORTED_DIFFERENCES = 100;
+
+    private final static String USAGE = "usage: Verifier [--out <file>] [--diff <file>] [--threads <n>] [--max-steps <n>] [--max-depth <n>] [--cache-mb <n>] <level pack> <solutions>";
+
+    private File _levelPack = null;
+    private File _solutions = null;
+    private File _out = new File("results.tsv");
+    private File _diff = null;
+    private int _threads = Runtime.getRuntime().availableProcessors();
+    private long _maxSteps = LevelRun.UNLIMITED_STEPS;
+    private int _maxDepth = LevelRun.DEFAULT_MAX_DEPTH;
+    private long _cacheWeight = LevelRegistry.DEFAULT_MAX_WEIGHT;
+
+    private final PrintStream _log;
+
+    private Verifier(@Nonnull PrintStream log) {
+        _log = log;
+    }
+
+    private void parseArgs(@Nonnull String[] args) {
+        List<String> positional = new ArrayList<>();
+
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+
+            if (!arg.startsWith("--")) {
+                positional.add(arg);
+
+                continue;
+            }
+
+            if (i + 1 == args.length) throw new IllegalArgumentException("missing value of " + arg);
+
+            String value = args[++i];
+
+            switch (arg) {
+                case "--out":
+                    _out = new File(value);
+
+                    break;
+                case "--diff":
+                    _diff = new File(value);
+
+                    break;
+                case "--threads":
+                    _threads = Integer.parseInt(value);
+
+                    if (_threads < 1) throw new IllegalArgumentException("invalid thread count " + _threads);
+
+                    break;
+                case "--max-steps":
+                    _maxSteps = Long.parseLong(value);
+
+                    break;
+                case "--max-depth":
+                    _maxDepth = Integer.parseInt(value);
+
+                    break;
+                case "--cache-mb":
+                    _cacheWeight = Long.parseLong(value) << 20;
+
+                    if (_cacheWeight < 0) throw new IllegalArgumentException("invalid cache size " + value);
+
+                    break;
+                default:
+                    throw new IllegalArgumentException("unknown option " + arg);
+            }
+        }
+
+        if (positional.size() != 2) throw new IllegalArgumentException("expected level pack and solutions, got " + positional);
+
+        _levelPack = new File(positional.get(0));
+        _solutions = new File(positional.get(1));
+    }
+
+    /**
+     * Magic number of the next record without consuming it.
+     *
+     * @return      magic number, 0 at the end of the input
+     */
+    private static int peekMagic(@Nonnull DataInputStream in) throws IOException {
+        in.mark(4);
+
+        if (in.read() < 0) return 0;
+
+        in.reset();
+
+        int magic = in.readInt();
+
+        in.reset();
+
+        return magic;
+    }
+
+    /**
+     * Iterates over the algorithm records of a binary pack, skipping level records.
+     */
+    private static class BinaryAlgoIterator implements Iterator<RobotAlgo>, AutoCloseable {
+        private final DataInputStream _in;
+        private RobotAlgo _next;
+
+        private void advance() {
+            try {
+                for (int magic = peekMagic(_in); magic != 0; magic = peekMagic(_in)) {
+                    if (magic == BinaryFormat.ALGO_MAGIC) {
+                        _next = BinaryFormat.readAlgo(_in);
+
+                        return;
+                    }
+
+                    BinaryFormat.skipRecord(_in);
+                }
+
+                _next = null;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return _next != null;
+        }
+
+        @Override
+        public RobotAlgo next() {
+            if (_next == null) throw new NoSuchElementException();
+
+            RobotAlgo next = _next;
+
+            advance();
+
+            return next;
+        }
+
+        @Override
+        public void close() throws IOException {
+            _in.close();
+        }
+
+        private BinaryAlgoIterator(@Nonnull File file) throws IOException {
+            _in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+
+            advance();
+        }
+    }
+
+    private static boolean isBinaryPack(@Nonnull File file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+            int magic = in.readInt();
+
+            return magic == BinaryFormat.ALGO_MAGIC || magic == BinaryFormat.LEVEL_MAGIC;
+        } catch (EOFException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Compares result lines against those of a previous run, both ordered by index.
+     */
+    private class Differ implements AutoCloseable {
+        private final BufferedReader _previous;
+        private String _pending;
+        private long _differences = 0;
+
+        @Nullable
+        private String readLine() throws IOException {
+            String line;
+
+            do {
+                line = _previous.readLine();
+            } while (line != null && line.startsWith("#"));
+
+            return line;
+        }
+
+        private long index(@Nonnull String line) {
+            int tab = line.indexOf('\t');
+
+            return Long.parseLong(tab < 0 ? line : line.substring(0, tab));
+        }
+
+        private void report(@Nullable String previous, @Nullable String current) {
+            if (++_differences > MAX_REPORTED_DIFFERENCES) return;
+
+            _log.println("- " + (previous != null ? previous : "(none)"));
+            _log.println("+ " + (current != null ? current : "(none)"));
+        }
+
+        private void compare(long index, @Nonnull String line) throws IOException {
+            while (_pending != null && index(_pending) < index) {
+                report(_pending, null);
+
+                _pending = readLine();
+            }
+
+            if (_pending != null && index(_pending) == index) {
+                if (!_pending.equals(line)) report(_pending, line);
+
+                _pending = readLine();
+            } else {
+                report(null, line);
+            }
+        }
+
+        private void finish() throws IOException {
+            while (_pending != null) {
+                report(_pending, null);
+
+                _pending = readLine();
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            _previous.close();
+        }
+
+        private Differ(@Nonnull File previous) throws IOException {
+            _previous = Files.newBufferedReader(previous.toPath(), StandardCharsets.UTF_8);
+            _pending = readLine();
+        }
+    }
+
+    /**
+     * amount of solutions below which a batch is not split any further
+     */
+    private final static int TASK_SIZE = 16;
+
+    /**
+     * Looks up the levels of a range of solutions and runs them, the solutions of missing levels are left without
+     * evaluation.
+     */
+    private static class BatchTask extends RecursiveAction {
+        private final static long serialVersionUID = 1L;
+
+        private final LevelRegistry _levels;
+        private final LevelEvaluator _evaluator;
+        private final List<RobotAlgo> _algos;
+        private final LevelEvaluator.Evaluation[] _evaluations;
+        private final int _from;
+        private final int _to;
+
+        @Override
+        protected void compute() {
+            if (_to - _from > TASK_SIZE) {
+                int mid = (_from + _to) >>> 1;
+
+                invokeAll(new BatchTask(_levels, _evaluator, _algos, _evaluations, _from, mid), new BatchTask(_levels, _evaluator, _algos, _evaluations, mid, _to));
+
+                return;
+            }
+
+            for (int i = _from; i < _to; i++) {
+                RobotAlgo algo = _algos.get(i);
+                String levelName = algo.getAssociatedLevelName();
+                Level level;
+
+                try {
+                    level = levelName != null ? _levels.get(levelName) : null;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+
+                if (level != null) _evaluations[i] = _evaluator.evaluate(level, algo);
+            }
+        }
+
+        private BatchTask(@Nonnull LevelRegistry levels, @Nonnull LevelEvaluator evaluator, @Nonnull List<RobotAlgo> algos, @Nonnull LevelEvaluator.Evaluation[] evaluations, int from, int to) {
+            _levels = levels;
+            _evaluator = evaluator;
+            _algos = algos;
+            _evaluations = evaluations;
+            _from = from;
+            _to = to;
+        }
+    }
+
+    @Nonnull
+    private static String resultLine(long index, @Nonnull RobotAlgo algo, @Nullable LevelEvaluator.Evaluation evaluation) {
+        String levelName = algo.getAssociatedLevelName();
+        StringBuilder line = new StringBuilder();
+
+        line.append(index).append('\t').append(levelName != null ? levelName : "").append('\t');
+
+        if (evaluation == null) line.append(MISSING_LEVEL).append("\t\t");
+        else line.append(evaluation.getResult()).append('\t').append(evaluation.getSteps()).append('\t').append(evaluation.getRemainingSwitches());
+
+        return line.toString();
+    }
+
+    private int verify() throws IOException {
+        long start = System.nanoTime();
+
+        LevelRegistry levels = new LevelRegistry(_cacheWeight);
+
+        _log.println("indexed " + levels.addPack(_levelPack) + " levels in " + (System.nanoTime() - start) / 1000000 + " ms");
+
+        boolean binary = isBinaryPack(_solutions);
+        Map<LevelRun.Result, Long> counts = new EnumMap<>(LevelRun.Result.class);
+        long missing = 0;
+        long steps = 0;
+        long index = 0;
+        long differences = 0;
+        long runStart = System.nanoTime();
+
+        ForkJoinPool pool = new ForkJoinPool(_threads);
+        LevelEvaluator evaluator = new LevelEvaluator(pool, _maxSteps, _maxDepth);
+
+        // null resources are skipped on close, the pool is shut down whichever input fails to open
+        try (BinaryAlgoIterator binaryAlgos = binary ? new BinaryAlgoIterator(_solutions) : null;
+             Differ differ = _diff != null ? new Differ(_diff) : null;
+             Writer out = Files.newBufferedWriter(_out.toPath(), StandardCharsets.UTF_8)) {
+            Iterator<RobotAlgo> algos = binary ? binaryAlgos : new RobotAlgoArchive(_solutions).iterator();
+            List<RobotAlgo> batch = new ArrayList<>(BATCH_SIZE);
+
+            out.write(HEADER);
+            out.write('\n');
+
+            while (algos.hasNext()) {
+                batch.clear();
+
+                while (batch.size() < BATCH_SIZE && algos.hasNext()) batch.add(algos.next());
+
+                LevelEvaluator.Evaluation[] evaluations = new LevelEvaluator.Evaluation[batch.size()];
+
+                pool.invoke(new BatchTask(levels, evaluator, batch, evaluations, 0, evaluations.length));
+
+                for (int i = 0; i < evaluations.length; i++, index++) {
+                    LevelEvaluator.Evaluation evaluation = evaluations[i];
+                    String line = resultLine(index, batch.get(i), evaluation);
+
+                    if (evaluation == null) {
+                        missing++;
+                    } else {
+                        counts.merge(evaluation.getResult(), 1L, Long::sum);
+                        steps += evaluation.getSteps();
+                    }
+
+                    out.write(line);
+                    out.write('\n');
+
+                    if (differ != null) differ.compare(index, line);
+                }
+            }
+
+            if (differ != null) {
+                differ.finish();
+
+                differences = differ._differences;
+            }
+        } finally {
+            pool.shutdown();
+        }
+
+        double seconds = Math.max(System.nanoTime() - runStart, 1L) / 1E9D;
+
+        _log.println("verified " + index + " solutions in " + String.format("%.3f", seconds) + " s on " + _threads + " threads: " + String.format("%.0f", index / seconds) + " solutions/s, " + String.format("%.0f", steps / seconds) + " steps/s");
+        _log.println("level cache: " + levels.getMissCount() + " loads, " + levels.getHitCount() + " hits, " + levels.getWeight() / 1024 + " KB");
+        _log.println("results " + counts + (missing > 0 ? ", " + missing + " with missing level" : "") + ", written to " + _out);
+
+        if (_diff == null) return EXIT_OK;
+
+        _log.println(differences + " outcomes differ from " + _diff + (differences > MAX_REPORTED_DIFFERENCES ? ", first " + MAX_REPORTED_DIFFERENCES + " listed" : ""));
+
+        return differences == 0 ? EXIT_OK : EXIT_DIFFERENCES;
+    }
+
+    /**
+     * Runs the verifier.
+     *
+     * @param args      command line arguments, see class description
+     * @param log       receives statistics, differences and errors
+     * @return          exit status, one of the EXIT_ constants
+     */
+    public static int run(@Nonnull String[] args, @Nonnull PrintStream log) {
+        Verifier verifier = new Verifier(log);
+
+        try {
+            verifier.parseArgs(args);
+        } catch (IllegalArgumentException e) {
+            log.println(e.getMessage());
+            log.println(USAGE);
+
+            return EXIT_ERROR;
+        }
+
+        try {
+            return verifier.verify();
+        } catch (IOException | UncheckedIOException | RobotAlgoFormatException e) {
+            log.println("verification failed: " + e.getMessage());
+
+            return EXIT_ERROR;
+        }
+    }
+
+    public static void main(String[] args) {
+        System.exit(run(args, System.out));
+    }
+}
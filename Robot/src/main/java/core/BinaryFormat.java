@@ -0,0 +1,414 @@
+package core;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Versioned binary records for {@link Level} and {@link RobotAlgo}. Each record starts with a magic number, a version
+ * byte and the length of the following body in bytes, so a reader can skip records it is not interested in and
+ * tolerates fields appended by later versions. Records can be concatenated into packs.
+ *
+ * Level body: name (modified UTF-8 as by {@link DataOutput#writeUTF(String)}), width, height, start x, start y and
+ * start direction, followed by the height plane as minimum height plus the row-major tile offsets from it packed into
+ * longs with as few bits per tile as needed, and the switch bitset as length-prefixed longs
+ * (see {@link BitSet#toLongArray()}).
+ *
+ * Algorithm body: a flag byte telling whether an associated level name follows, then for each of the main, f1 and
+ * f2 groups the amount of actions and the 3-bit {@link RobotAction.Type} ordinals packed into bytes.
+ */
+public final class BinaryFormat {
+    /**
+     * magic number of level records, "RLVL"
+     */
+    public final static int LEVEL_MAGIC = 0x524C564C;
+    /**
+     * magic number of algorithm records, "RALG"
+     */
+    public final static int ALGO_MAGIC = 0x52414C47;
+    /**
+     * version written, records of higher versions are rejected
+     */
+    public final static int VERSION = 1;
+
+    private final static int ACTION_BITS = 3;
+    private final static int FLAG_NAME = 1;
+
+    private BinaryFormat() {
+
+    }
+
+    /**
+     * amount of bytes of a string written by {@link DataOutput#writeUTF(String)}
+     */
+    private static int utfLength(@Nonnull String s) {
+        int len = 2;
+
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+
+            if (c >= 0x0001 && c <= 0x007F) len += 1;
+            else if (c > 0x07FF) len += 3;
+            else len += 2;
+        }
+
+        return len;
+    }
+
+    private static int bitsFor(int range) {
+        return 32 - Integer.numberOfLeadingZeros(range);
+    }
+
+    private static int wordCount(long bits) {
+        return (int) ((bits + 63) >>> 6);
+    }
+
+    private static void writeHeader(@Nonnull DataOutput out, int magic, int bodyLength) throws IOException {
+        out.writeInt(magic);
+        out.writeByte(VERSION);
+        out.writeInt(bodyLength);
+    }
+
+    /**
+     * Reads a record header.
+     *
+     * @return      body length
+     */
+    private static int readHeader(@Nonnull DataInput in, int magic) throws IOException {
+        int actualMagic = in.readInt();
+
+        if (actualMagic != magic) throw new IOException("unexpected record magic " + Integer.toHexString(actualMagic) + ", expected " + Integer.toHexString(magic));
+
+        return readBodyLength(in);
+    }
+
+    /**
+     * Reads the part of a record header following the magic number.
+     *
+     * @return      body length
+     */
+    private static int readBodyLength(@Nonnull DataInput in) throws IOException {
+        int version = in.readUnsignedByte();
+
+        if (version == 0 || version > VERSION) throw new IOException("unsupported record version " + version);
+
+        int bodyLength = in.readInt();
+
+        if (bodyLength < 0) throw new IOException("invalid record length " + bodyLength);
+
+        return bodyLength;
+    }
+
+    private static void skipFully(@Nonnull DataInput in, int n) throws IOException {
+        while (n > 0) {
+            int skipped = in.skipBytes(n);
+
+            if (skipped <= 0) {
+                in.readByte();
+
+                skipped = 1;
+            }
+
+            n -= skipped;
+        }
+    }
+
+    /**
+     * Skips the remainder of a body, which may hold fields of a later version.
+     */
+    private static void skipRemainder(@Nonnull DataInput in, int bodyLength, int consumed) throws IOException {
+        if (consumed > bodyLength) throw new IOException("record body exceeds its length " + bodyLength);
+
+        skipFully(in, bodyLength - consumed);
+    }
+
+    /**
+     * Skips a whole level or algorithm record.
+     *
+     * @param in        input positioned at the start of a record
+     * @return          magic number of the skipped record
+     * @throws IOException      reading failed or the record header is malformed
+     */
+    public static int skipRecord(@Nonnull DataInput in) throws IOException {
+        int magic = in.readInt();
+
+        if (magic != LEVEL_MAGIC && magic != ALGO_MAGIC) throw new IOException("unexpected record magic " + Integer.toHexString(magic));
+
+        skipFully(in, readBodyLength(in));
+
+        return magic;
+    }
+
+    /**
+     * Reads the name of a level record and skips the rest of it, so packs can be indexed without decoding their
+     * levels. Algorithm records are skipped entirely.
+     *
+     * @param in        input positioned at the start of a record
+     * @return          level name, null if the record is an algorithm
+     * @throws IOException      reading failed or the record header is malformed
+     */
+    @Nullable
+    public static String readLevelName(@Nonnull DataInput in) throws IOException {
+        int magic = in.readInt();
+
+        if (magic != LEVEL_MAGIC && magic != ALGO_MAGIC) throw new IOException("unexpected record magic " + Integer.toHexString(magic));
+
+        int bodyLength = readBodyLength(in);
+
+        if (magic == ALGO_MAGIC) {
+            skipFully(in, bodyLength);
+
+            return null;
+        }
+
+        String name = in.readUTF();
+
+        skipRemainder(in, bodyLength, utfLength(name));
+
+        return name;
+    }
+
+    /**
+     * Writes a level record.
+     *
+     * @param out       output
+     * @param level     level to write
+     * @throws IOException      writing failed
+     */
+    public static void writeLevel(@Nonnull DataOutput out, @Nonnull Level level) throws IOException {
+        short[] heights = level.heights();
+        long[] switchWords = level.switches().toLongArray();
+
+        int minHeight = Short.MAX_VALUE;
+        int maxHeight = Short.MIN_VALUE;
+
+        for (short h : heights) {
+            if (h < minHeight) minHeight = h;
+            if (h > maxHeight) maxHeight = h;
+        }
+
+        int bits = bitsFor(maxHeight - minHeight);
+        int heightWords = wordCount((long) heights.length * bits);
+
+        int bodyLength = utfLength(level.getName()) + 4 * 4 + 1 + 2 + 1 + heightWords * 8 + 4 + switchWords.length * 8;
+
+        writeHeader(out, LEVEL_MAGIC, bodyLength);
+
+        out.writeUTF(level.getName());
+        out.writeInt(level.getWidth());
+        out.writeInt(level.getHeight());
+        out.writeInt(level.getStartPos().getX());
+        out.writeInt(level.getStartPos().getY());
+        out.writeByte(level.getStartDir());
+
+        out.writeShort(minHeight);
+        out.writeByte(bits);
+
+        if (bits > 0) {
+            long word = 0;
+            int used = 0;
+
+            for (short h : heights) {
+                long value = h - minHeight;
+
+                word |= value << used;
+                used += bits;
+
+                if (used >= 64) {
+                    out.writeLong(word);
+
+                    used -= 64;
+                    word = used > 0 ? value >>> (bits - used) : 0;
+                }
+            }
+
+            if (used > 0) out.writeLong(word);
+        }
+
+        out.writeInt(switchWords.length);
+
+        for (long switchWord : switchWords) out.writeLong(switchWord);
+    }
+
+    /**
+     * Reads a level record.
+     *
+     * @param in        input positioned at the start of a level record
+     * @return          level
+     * @throws IOException      reading failed or the record is malformed
+     */
+    @Nonnull
+    public static Level readLevel(@Nonnull DataInput in) throws IOException {
+        int bodyLength = readHeader(in, LEVEL_MAGIC);
+
+        String name = in.readUTF();
+        int width = in.readInt();
+        int height = in.readInt();
+        int startX = in.readInt();
+        int startY = in.readInt();
+        int startDir = in.readUnsignedByte();
+
+        if (width <= 0 || height <= 0 || (long) width * height > Integer.MAX_VALUE) throw new IOException("invalid dimensions " + width + "x" + height);
+
+        int minHeight = in.readShort();
+        int bits = in.readUnsignedByte();
+
+        if (bits > 16) throw new IOException("invalid height bits " + bits);
+
+        short[] heights = new short[width * height];
+        int heightWords = wordCount((long) heights.length * bits);
+
+        if (bits > 0) {
+            long mask = (1L << bits) - 1;
+            long word = in.readLong();
+            int used = 0;
+
+            for (int i = 0; i < heights.length; i++) {
+                long value = word >>> used;
+
+                used += bits;
+
+                if (used >= 64) {
+                    used -= 64;
+
+                    if (i + 1 < heights.length || used > 0) {
+                        word = in.readLong();
+
+                        if (used > 0) value |= word << (bits - used);
+                    }
+                }
+
+                heights[i] = (short) (minHeight + (value & mask));
+            }
+        } else {
+            if (minHeight != 0) Arrays.fill(heights, (short) minHeight);
+        }
+
+        int switchWordCount = in.readInt();
+
+        if (switchWordCount < 0 || switchWordCount > wordCount(heights.length)) throw new IOException("invalid switch word count " + switchWordCount);
+
+        long[] switchWords = new long[switchWordCount];
+
+        for (int i = 0; i < switchWordCount; i++) switchWords[i] = in.readLong();
+
+        skipRemainder(in, bodyLength, utfLength(name) + 4 * 4 + 1 + 2 + 1 + heightWords * 8 + 4 + switchWordCount * 8);
+
+        try {
+            return new Level(name, width, height, BitSet.valueOf(switchWords), heights, new Position(startX, startY), startDir);
+        } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+            throw new IOException("invalid level " + name, e);
+        }
+    }
+
+    private static int groupLength(@Nonnull RobotAlgo.Group group) {
+        return 4 + (group.size() * ACTION_BITS + 7) / 8;
+    }
+
+    private static void writeGroup(@Nonnull DataOutput out, @Nonnull RobotAlgo.Group group) throws IOException {
+        out.writeInt(group.size());
+
+        int buffer = 0;
+        int used = 0;
+
+        for (int i = 0; i < group.size(); i++) {
+            buffer |= group.getType(i).ordinal() << used;
+            used += ACTION_BITS;
+
+            if (used >= 8) {
+                out.writeByte(buffer);
+
+                buffer >>>= 8;
+                used -= 8;
+            }
+        }
+
+        if (used > 0) out.writeByte(buffer);
+    }
+
+    private static int readGroup(@Nonnull DataInput in, @Nonnull RobotAlgo.Group group) throws IOException {
+        int count = in.readInt();
+
+        if (count < 0) throw new IOException("invalid action count " + count);
+
+        int buffer = 0;
+        int available = 0;
+
+        for (int i = 0; i < count; i++) {
+            if (available < ACTION_BITS) {
+                buffer |= in.readUnsignedByte() << available;
+                available += 8;
+            }
+
+            int ordinal = buffer & ((1 << ACTION_BITS) - 1);
+
+            if (ordinal >= RobotAction.Type.count()) throw new IOException("invalid action " + ordinal);
+
+            group.addAction(RobotAction.Type.forOrdinal(ordinal));
+
+            buffer >>>= ACTION_BITS;
+            available -= ACTION_BITS;
+        }
+
+        return groupLength(group);
+    }
+
+    /**
+     * Writes an algorithm record.
+     *
+     * @param out       output
+     * @param algo      algorithm to write
+     * @throws IOException      writing failed
+     */
+    public static void writeAlgo(@Nonnull DataOutput out, @Nonnull RobotAlgo algo) throws IOException {
+        String name = algo.getAssociatedLevelName();
+
+        int bodyLength = 1 + (name != null ? utfLength(name) : 0) + groupLength(algo.getMainGroup()) + groupLength(algo.getF1Group()) + groupLength(algo.getF2Group());
+
+        writeHeader(out, ALGO_MAGIC, bodyLength);
+
+        out.writeByte(name != null ? FLAG_NAME : 0);
+
+        if (name != null) out.writeUTF(name);
+
+        writeGroup(out, algo.getMainGroup());
+        writeGroup(out, algo.getF1Group());
+        writeGroup(out, algo.getF2Group());
+    }
+
+    /**
+     * Reads an algorithm record.
+     *
+     * @param in        input positioned at the start of an algorithm record
+     * @return          algorithm
+     * @throws IOException      reading failed or the record is malformed
+     */
+    @Nonnull
+    public static RobotAlgo readAlgo(@Nonnull DataInput in) throws IOException {
+        int bodyLength = readHeader(in, ALGO_MAGIC);
+
+        RobotAlgo algo = new RobotAlgo();
+        int flags = in.readUnsignedByte();
+        int consumed = 1;
+
+        if ((flags & FLAG_NAME) != 0) {
+            String name = in.readUTF();
+
+            algo.setAssociatedLevelName(name);
+
+            consumed += utfLength(name);
+        }
+
+        consumed += readGroup(in, algo.getMainGroup());
+        consumed += readGroup(in, algo.getF1Group());
+        consumed += readGroup(in, algo.getF2Group());
+
+        skipRemainder(in, bodyLength, consumed);
+
+        return algo;
+    }
+}
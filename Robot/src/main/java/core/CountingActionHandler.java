@@ -0,0 +1,165 @@
+package core;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Counts the events of a run and forwards them to another handler. Meant for instrumentation; runs that need no
+ * events at all should use {@link LevelRun.ActionHandler#NONE} instead, which skips dispatching altogether.
+ */
+public class CountingActionHandler implements LevelRun.ActionHandler {
+    private final LevelRun.ActionHandler _delegate;
+
+    private long _steps = 0;
+
+    /**
+     * Amount of actions reported, function calls included.
+     *
+     * @return      executed steps
+     */
+    public long getSteps() {
+        return _steps;
+    }
+
+    private long _turns = 0;
+
+    /**
+     * Amount of rotations.
+     *
+     * @return      turns
+     */
+    public long getTurns() {
+        return _turns;
+    }
+
+    private long _moves = 0;
+
+    /**
+     * Amount of successful moves and jumps.
+     *
+     * @return      moves
+     */
+    public long getMoves() {
+        return _moves;
+    }
+
+    private long _bumps = 0;
+
+    /**
+     * Amount of moves and jumps blocked by the terrain.
+     *
+     * @return      bumps
+     */
+    public long getBumps() {
+        return _bumps;
+    }
+
+    private long _switches = 0;
+
+    /**
+     * Amount of switch toggles.
+     *
+     * @return      switch uses
+     */
+    public long getSwitches() {
+        return _switches;
+    }
+
+    private long _successes = 0;
+
+    /**
+     * Amount of finished runs that solved their level.
+     *
+     * @return      successful runs
+     */
+    public long getSuccesses() {
+        return _successes;
+    }
+
+    private long _failures = 0;
+
+    /**
+     * Amount of finished runs that did not solve their level.
+     *
+     * @return      failed runs
+     */
+    public long getFailures() {
+        return _failures;
+    }
+
+    /**
+     * Sets all counters back to zero.
+     */
+    public void reset() {
+        _steps = 0;
+        _turns = 0;
+        _moves = 0;
+        _bumps = 0;
+        _switches = 0;
+        _successes = 0;
+        _failures = 0;
+    }
+
+    @Override
+    public void result(boolean success) {
+        if (success) _successes++;
+        else _failures++;
+
+        _delegate.result(success);
+    }
+
+    @Override
+    public void action() {
+        _steps++;
+
+        _delegate.action();
+    }
+
+    @Override
+    public void turn(int newDir, int oldDir) {
+        _turns++;
+
+        _delegate.turn(newDir, oldDir);
+    }
+
+    @Override
+    public void move(int newX, int newY, int oldX, int oldY) {
+        _moves++;
+
+        _delegate.move(newX, newY, oldX, oldY);
+    }
+
+    @Override
+    public void useSwitch(int x, int y) {
+        _switches++;
+
+        _delegate.useSwitch(x, y);
+    }
+
+    @Override
+    public void bump(int x, int y) {
+        _bumps++;
+
+        _delegate.bump(x, y);
+    }
+
+    @Override
+    public String toString() {
+        return _steps + " steps, " + _turns + " turns, " + _moves + " moves, " + _bumps + " bumps, " + _switches + " switches";
+    }
+
+    /**
+     * Creates a handler that only counts. A handler instance is not thread-safe, use one per thread.
+     */
+    public CountingActionHandler() {
+        this(LevelRun.ActionHandler.NONE);
+    }
+
+    /**
+     * Creates a handler that counts and forwards all events.
+     *
+     * @param delegate      handler the events are forwarded to
+     */
+    public CountingActionHandler(@Nonnull LevelRun.ActionHandler delegate) {
+        _delegate = delegate;
+    }
+}
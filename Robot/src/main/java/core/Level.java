@@ -1,8 +1,8 @@
 package core;
 
-import javafx.util.Pair;
-
 import javax.annotation.Nonnull;
+import java.util.Arrays;
+import java.util.BitSet;
 
 public class Level {
     private String _name;
@@ -22,8 +22,17 @@ public class Level {
         return _name;
     }
 
-    private final Boolean[][] _switchMap;
-    private final Integer[][] _heightMap;
+    private final int _width;
+    private final int _height;
+
+    /**
+     * activatable tiles, one bit per tile, row-major (index = y * width + x)
+     */
+    private final BitSet _switches;
+    /**
+     * height level of each tile, row-major (index = y * width + x)
+     */
+    private final short[] _heights;
 
     /**
      * Exposes the vertical (y) dimension
@@ -31,7 +40,7 @@ public class Level {
      * @return      amount of tiles in y direction
      */
     public int getHeight() {
-        return _switchMap[0].length;
+        return _height;
     }
 
     /**
@@ -40,44 +49,189 @@ public class Level {
      * @return      amount of tiles in x direction
      */
     public int getWidth() {
-        return _switchMap.length;
+        return _width;
+    }
+
+    private int index(int x, int y) {
+        if (x < 0 || x >= _width || y < 0 || y >= _height) throw new IndexOutOfBoundsException("tile " + x + "/" + y + " outside of " + _width + "x" + _height);
+
+        return y * _width + x;
+    }
+
+    /**
+     * Whether the given tile is activatable.
+     *
+     * @param x     x coordinate
+     * @param y     y coordinate
+     * @return      true if the tile is a switch
+     */
+    public boolean isSwitch(int x, int y) {
+        return _switches.get(index(x, y));
     }
 
     /**
-     * Accessor method for the matrix of activatable tiles
+     * Height level of the given tile.
+     *
+     * @param x     x coordinate
+     * @param y     y coordinate
+     * @return      tile height
+     */
+    public int heightAt(int x, int y) {
+        return _heights[index(x, y)];
+    }
+
+    /**
+     * Direct access to the packed switch tiles for serialization, must not be modified.
+     */
+    @Nonnull
+    BitSet switches() {
+        return _switches;
+    }
+
+    /**
+     * Direct access to the packed height plane for serialization, must not be modified.
+     */
+    @Nonnull
+    short[] heights() {
+        return _heights;
+    }
+
+    /**
+     * row-major indices of the activatable tiles in ascending order, the position in this array is the ordinal of the
+     * switch
+     */
+    private final int[] _switchTiles;
+
+    /**
+     * Exposes the amount of activatable tiles.
+     *
+     * @return      amount of switches
+     */
+    public int getSwitchCount() {
+        return _switchTiles.length;
+    }
+
+    /**
+     * Dense number of the switch on the given tile. Switches are numbered row by row, starting at 0, so they can be
+     * used as bit indices of a switch state. Searches the switch tiles, runs look the ordinal up in the
+     * {@link MovementGraph} instead.
+     *
+     * @param x     x coordinate
+     * @param y     y coordinate
+     * @return      ordinal of the switch, -1 if the tile is not a switch
+     */
+    public int getSwitchOrdinal(int x, int y) {
+        int index = index(x, y);
+
+        if (!_switches.get(index)) return -1;
+
+        return Arrays.binarySearch(_switchTiles, index);
+    }
+
+    /**
+     * Exposes the x coordinate of a switch.
+     *
+     * @param ordinal   ordinal of the switch, see {@link #getSwitchOrdinal(int, int)}
+     * @return          x coordinate
+     */
+    public int getSwitchX(int ordinal) {
+        return _switchTiles[ordinal] % _width;
+    }
+
+    /**
+     * Exposes the y coordinate of a switch.
+     *
+     * @param ordinal   ordinal of the switch, see {@link #getSwitchOrdinal(int, int)}
+     * @return          y coordinate
+     */
+    public int getSwitchY(int ordinal) {
+        return _switchTiles[ordinal] / _width;
+    }
+
+    /**
+     * Accessor method for the matrix of activatable tiles. Materializes a new matrix on each call, prefer
+     * {@link #isSwitch(int, int)}.
      *
      * @return      matrix of activatable tiles for reading only
      */
     @Nonnull
     public Boolean[][] getSwitchMap() {
-        return _switchMap.clone();
+        Boolean[][] switchMap = new Boolean[_width][_height];
+
+        for (int x = 0; x < _width; x++) {
+            for (int y = 0; y < _height; y++) {
+                switchMap[x][y] = _switches.get(y * _width + x);
+            }
+        }
+
+        return switchMap;
     }
 
     /**
-     * Accessor method for the matrix of heights of each tile
+     * Accessor method for the matrix of heights of each tile. Materializes a new matrix on each call, prefer
+     * {@link #heightAt(int, int)}.
      *
      * @return      matrix of tile heights
      */
     @Nonnull
     public Integer[][] getHeightMap() {
-        return _heightMap.clone();
+        Integer[][] heightMap = new Integer[_width][_height];
+
+        for (int x = 0; x < _width; x++) {
+            for (int y = 0; y < _height; y++) {
+                heightMap[x][y] = (int) _heights[y * _width + x];
+            }
+        }
+
+        return heightMap;
+    }
+
+    /**
+     * built on first use, see {@link #getMovementGraph()}
+     */
+    private volatile MovementGraph _movementGraph = null;
+
+    /**
+     * Transition table of moves and jumps on this level. Built on first call and cached, levels that are never run
+     * do not pay for it.
+     *
+     * @return      movement graph
+     */
+    @Nonnull
+    public MovementGraph getMovementGraph() {
+        MovementGraph movementGraph = _movementGraph;
+
+        if (movementGraph == null) {
+            synchronized (this) {
+                movementGraph = _movementGraph;
+
+                if (movementGraph == null) {
+                    movementGraph = new MovementGraph(this);
+
+                    _movementGraph = movementGraph;
+                }
+            }
+        }
+
+        return movementGraph;
     }
 
-    private final Pair<Integer, Integer> _startPos;
+    private final Position _startPos;
 
     /**
-     * Accessor method for the start position (as given in {@link #Level(String, Boolean[][], Integer[][], Pair, int)}).
+     * Accessor method for the start position (as given in {@link #Level(String, Boolean[][], Integer[][], Position, int)}).
      *
-     * @return      start position (x/y pair)
+     * @return      start position
      */
-    public Pair<Integer, Integer> getStartPos() {
+    @Nonnull
+    public Position getStartPos() {
         return _startPos;
     }
 
     private final int _startDir;
 
     /**
-     * Accessor method for the (as given in {@link #Level(String, Boolean[][], Integer[][], Pair, int)}).
+     * Accessor method for the (as given in {@link #Level(String, Boolean[][], Integer[][], Position, int)}).
      *
      * @return      start direction ({@link LevelRun#DIR_LEFT}, {@link LevelRun#DIR_DOWN},
      *              {@link LevelRun#DIR_RIGHT}, {@link LevelRun#DIR_UP})
@@ -90,16 +244,85 @@ public class Level {
      * Constructs a new level with the specified parameters.
      *
      * @param      name         level name
-     * @param      switchMap    matrix of the activatable switches
-     * @param      heightMap    matrix of the height level for each tile
-     * @param      startPos     where the robot starts within the level in relation to the maps
+     * @param      width        amount of tiles in x direction
+     * @param      height       amount of tiles in y direction
+     * @param      switches     activatable tiles, row-major (index = y * width + x), taken over without copying
+     * @param      heights      height level of each tile, row-major (index = y * width + x), taken over without copying
+     * @param      startPos     where the robot starts within the level
      * @param      startDir     initial facing of the robot, see constants in LevelRun
      */
-    public Level(@Nonnull String name, @Nonnull Boolean[][] switchMap, @Nonnull Integer[][] heightMap, @Nonnull Pair<Integer, Integer> startPos, int startDir) {
+    public Level(@Nonnull String name, int width, int height, @Nonnull BitSet switches, @Nonnull short[] heights, @Nonnull Position startPos, int startDir) {
+        if (width <= 0 || height <= 0) throw new IllegalArgumentException("invalid dimensions " + width + "x" + height);
+        if (heights.length != width * height) throw new IllegalArgumentException("height plane has " + heights.length + " tiles, expected " + width * height);
+        if (switches.length() > width * height) throw new IllegalArgumentException("switch bit " + (switches.length() - 1) + " outside of " + width + "x" + height);
+
         _name = name;
-        _switchMap = switchMap;
-        _heightMap = heightMap;
+        _width = width;
+        _height = height;
+        _switches = switches;
+        _heights = heights;
         _startPos = startPos;
         _startDir = startDir;
+
+        index(startPos.getX(), startPos.getY());
+
+        _switchTiles = new int[switches.cardinality()];
+
+        for (int i = 0, index = switches.nextSetBit(0); index >= 0; i++, index = switches.nextSetBit(index + 1)) {
+            _switchTiles[i] = index;
+        }
+    }
+
+    /**
+     * Constructs a new level with the specified parameters. The matrices are converted to the packed representation,
+     * they are not referenced afterwards.
+     *
+     * @param      name         level name
+     * @param      switchMap    matrix of the activatable switches
+     * @param      heightMap    matrix of the height level for each tile
+     * @param      startPos     where the robot starts within the level in relation to the maps
+     * @param      startDir     initial facing of the robot, see constants in LevelRun
+     */
+    public Level(@Nonnull String name, @Nonnull Boolean[][] switchMap, @Nonnull Integer[][] heightMap, @Nonnull Position startPos, int startDir) {
+        this(name, switchMap.length, switchMap[0].length, packSwitches(switchMap), packHeights(heightMap, switchMap.length, switchMap[0].length), startPos, startDir);
+    }
+
+    @Nonnull
+    private static BitSet packSwitches(@Nonnull Boolean[][] switchMap) {
+        int width = switchMap.length;
+        int height = switchMap[0].length;
+
+        BitSet switches = new BitSet(width * height);
+
+        for (int x = 0; x < width; x++) {
+            if (switchMap[x].length != height) throw new IllegalArgumentException("switch map is not rectangular");
+
+            for (int y = 0; y < height; y++) {
+                if (switchMap[x][y]) switches.set(y * width + x);
+            }
+        }
+
+        return switches;
+    }
+
+    @Nonnull
+    private static short[] packHeights(@Nonnull Integer[][] heightMap, int width, int height) {
+        if (heightMap.length != width) throw new IllegalArgumentException("height map does not match switch map dimensions");
+
+        short[] heights = new short[width * height];
+
+        for (int x = 0; x < width; x++) {
+            if (heightMap[x].length != height) throw new IllegalArgumentException("height map does not match switch map dimensions");
+
+            for (int y = 0; y < height; y++) {
+                int h = heightMap[x][y];
+
+                if (h < Short.MIN_VALUE || h > Short.MAX_VALUE) throw new IllegalArgumentException("height " + h + " at " + x + "/" + y + " out of range");
+
+                heights[y * width + x] = (short) h;
+            }
+        }
+
+        return heights;
     }
 }
@@ -0,0 +1,184 @@
+package core;
+
+import javax.annotation.Nonnull;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Runs robot algorithms against levels without any event handling. Levels and compiled programs are immutable, so
+ * one level is shared by all runs of a batch, which are spread over a {@link ForkJoinPool}.
+ */
+public class LevelEvaluator {
+    /**
+     * outcome of running a single algorithm
+     */
+    public static class Evaluation {
+        private final RobotAlgo _algo;
+
+        /**
+         * Accessor method for the evaluated algorithm.
+         *
+         * @return      algorithm
+         */
+        @Nonnull
+        public RobotAlgo getAlgo() {
+            return _algo;
+        }
+
+        private final LevelRun.Result _result;
+
+        /**
+         * Accessor method for the outcome of the run.
+         *
+         * @return      result
+         */
+        @Nonnull
+        public LevelRun.Result getResult() {
+            return _result;
+        }
+
+        /**
+         * Whether the algorithm solved the level.
+         *
+         * @return      true if all switches were activated
+         */
+        public boolean isSuccess() {
+            return _result == LevelRun.Result.SOLVED;
+        }
+
+        private final long _steps;
+
+        /**
+         * Amount of actions executed, function calls included.
+         *
+         * @return      executed steps
+         */
+        public long getSteps() {
+            return _steps;
+        }
+
+        private final int _remainingSwitches;
+
+        /**
+         * Amount of switches left to activate when the run ended.
+         *
+         * @return      remaining switches
+         */
+        public int getRemainingSwitches() {
+            return _remainingSwitches;
+        }
+
+        @Override
+        public String toString() {
+            return _result + " after " + _steps + " steps, " + _remainingSwitches + " switches remaining";
+        }
+
+        Evaluation(@Nonnull RobotAlgo algo, @Nonnull LevelRun run) {
+            _algo = algo;
+            _result = run.getResult();
+            _steps = run.getSteps();
+            _remainingSwitches = run.getRemainingSwitchCount();
+        }
+    }
+
+    /**
+     * amount of runs below which a batch is not split any further
+     */
+    private final static int BATCH_SIZE = 16;
+
+    private class EvaluateTask extends RecursiveAction {
+        private final static long serialVersionUID = 1L;
+
+        private final Level _level;
+        private final RobotAlgo[] _algos;
+        private final Evaluation[] _evaluations;
+        private final int _from;
+        private final int _to;
+
+        @Override
+        protected void compute() {
+            if (_to - _from <= BATCH_SIZE) {
+                for (int i = _from; i < _to; i++) {
+                    _evaluations[i] = evaluate(_level, _algos[i]);
+                }
+
+                return;
+            }
+
+            int mid = (_from + _to) >>> 1;
+
+            invokeAll(new EvaluateTask(_level, _algos, _evaluations, _from, mid), new EvaluateTask(_level, _algos, _evaluations, mid, _to));
+        }
+
+        private EvaluateTask(@Nonnull Level level, @Nonnull RobotAlgo[] algos, @Nonnull Evaluation[] evaluations, int from, int to) {
+            _level = level;
+            _algos = algos;
+            _evaluations = evaluations;
+            _from = from;
+            _to = to;
+        }
+    }
+
+    private final ForkJoinPool _pool;
+    private final long _maxSteps;
+    private final int _maxDepth;
+
+    /**
+     * Runs a single algorithm on the calling thread.
+     *
+     * @param level     level to run on
+     * @param algo      algorithm to run
+     * @return          outcome of the run
+     */
+    @Nonnull
+    public Evaluation evaluate(@Nonnull Level level, @Nonnull RobotAlgo algo) {
+        LevelRun run = new LevelRun(level, algo);
+
+        run.exec(_maxSteps, _maxDepth);
+
+        return new Evaluation(algo, run);
+    }
+
+    /**
+     * Runs all given algorithms against the same level in parallel.
+     *
+     * @param level     level to run on
+     * @param algos     algorithms to run
+     * @return          outcomes in the iteration order of <code>algos</code>
+     */
+    @Nonnull
+    public List<Evaluation> evaluateAll(@Nonnull Level level, @Nonnull Collection<RobotAlgo> algos) {
+        RobotAlgo[] algoArray = algos.toArray(new RobotAlgo[0]);
+        Evaluation[] evaluations = new Evaluation[algoArray.length];
+
+        if (algoArray.length == 0) return Collections.emptyList();
+
+        _pool.invoke(new EvaluateTask(level, algoArray, evaluations, 0, algoArray.length));
+
+        return Collections.unmodifiableList(Arrays.asList(evaluations));
+    }
+
+    /**
+     * Creates an evaluator on the common pool without step budget.
+     */
+    public LevelEvaluator() {
+        this(ForkJoinPool.commonPool(), LevelRun.UNLIMITED_STEPS, LevelRun.DEFAULT_MAX_DEPTH);
+    }
+
+    /**
+     * Creates an evaluator.
+     *
+     * @param pool          pool the runs are executed in
+     * @param maxSteps      step budget of each run, see {@link LevelRun#exec(long, int)}
+     * @param maxDepth      maximum call depth of each run, see {@link LevelRun#exec(long, int)}
+     */
+    public LevelEvaluator(@Nonnull ForkJoinPool pool, long maxSteps, int maxDepth) {
+        _pool = pool;
+        _maxSteps = maxSteps;
+        _maxDepth = maxDepth;
+    }
+}
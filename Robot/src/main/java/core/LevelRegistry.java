@@ -0,0 +1,331 @@
+package core;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Looks up levels by name, e.g. by {@link RobotAlgo#getAssociatedLevelName()}, in packs of {@link BinaryFormat}
+ * records. Adding a pack only indexes the names and record offsets, a level is read on first request and kept in an
+ * LRU cache bounded by the estimated memory of the cached levels, including the data derived from them like the
+ * {@link MovementGraph}, which is built before a level enters the cache.
+ *
+ * Thread-safe. Concurrent requests for a level that is not cached wait for a single load instead of reading it
+ * each.
+ */
+public class LevelRegistry {
+    /**
+     * default bound of the cache weight, 256 MB
+     */
+    public final static long DEFAULT_MAX_WEIGHT = 1L << 28;
+
+    /**
+     * estimated fixed cost of a cached level, object headers and the like
+     */
+    private final static long LEVEL_OVERHEAD = 256;
+
+    /**
+     * place of a level record
+     */
+    private final static class Location {
+        private final File _pack;
+        private final long _offset;
+
+        private Location(@Nonnull File pack, long offset) {
+            _pack = pack;
+            _offset = offset;
+        }
+    }
+
+    private final Map<String, Location> _index = new ConcurrentHashMap<>();
+
+    private final static class CachedLevel {
+        private final CompletableFuture<Level> _level = new CompletableFuture<>();
+        /**
+         * 0 while loading
+         */
+        private long _weight = 0;
+    }
+
+    /**
+     * loaded and loading levels in access order, guarded by this
+     */
+    private final LinkedHashMap<String, CachedLevel> _cache = new LinkedHashMap<>(16, 0.75F, true);
+    private final long _maxWeight;
+    private long _weight = 0;
+    private long _hitCount = 0;
+    private long _missCount = 0;
+
+    /**
+     * counts the bytes read, so record offsets are known while reading through a buffer
+     */
+    private final static class CountingInputStream extends FilterInputStream {
+        private long _count = 0;
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+
+            if (b >= 0) _count++;
+
+            return b;
+        }
+
+        @Override
+        public int read(@Nonnull byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+
+            if (n > 0) _count += n;
+
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+
+            _count += skipped;
+
+            return skipped;
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+
+        private CountingInputStream(@Nonnull InputStream in) {
+            super(in);
+        }
+    }
+
+    /**
+     * Indexes the levels of a pack. Algorithm records in the pack are skipped.
+     *
+     * @param pack      file of concatenated records
+     * @return          amount of levels indexed
+     * @throws IOException      the pack cannot be read, is malformed or holds a level name that is already indexed
+     */
+    public int addPack(@Nonnull File pack) throws IOException {
+        long size = pack.length();
+        int count = 0;
+
+        try (CountingInputStream counter = new CountingInputStream(new BufferedInputStream(new FileInputStream(pack)))) {
+            DataInputStream in = new DataInputStream(counter);
+
+            while (counter._count < size) {
+                long offset = counter._count;
+                String name = BinaryFormat.readLevelName(in);
+
+                if (name == null) continue;
+
+                if (_index.putIfAbsent(name, new Location(pack, offset)) != null) throw new IOException("duplicate level " + name + " in " + pack);
+
+                count++;
+            }
+        }
+
+        return count;
+    }
+
+    /**
+     * Names of the indexed levels.
+     *
+     * @return      unmodifiable live view
+     */
+    @Nonnull
+    public Set<String> getNames() {
+        return Collections.unmodifiableSet(_index.keySet());
+    }
+
+    /**
+     * Whether a level of the given name is indexed.
+     *
+     * @param name      level name
+     * @return          true if indexed
+     */
+    public boolean contains(@Nonnull String name) {
+        return _index.containsKey(name);
+    }
+
+    /**
+     * Estimated memory held by a loaded level.
+     */
+    private static long weigh(@Nonnull Level level) {
+        long tiles = (long) level.getWidth() * level.getHeight();
+
+        // heights, switch bitset, switch tiles and the movement graph with its switch ordinal per tile
+        return LEVEL_OVERHEAD + tiles * 2 + tiles / 8 + level.getSwitchCount() * 4L + tiles + tiles * 4;
+    }
+
+    @Nonnull
+    private static Level load(@Nonnull Location location) throws IOException {
+        try (FileChannel channel = FileChannel.open(location._pack.toPath(), StandardOpenOption.READ)) {
+            channel.position(location._offset);
+
+            Level level = BinaryFormat.readLevel(new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel))));
+
+            // derived data is cached along with the level
+            level.getMovementGraph();
+
+            return level;
+        }
+    }
+
+    /**
+     * Evicts the least recently used loaded levels until the weight is within bounds, except for the given one.
+     */
+    private void evict(@Nonnull CachedLevel keep) {
+        Iterator<CachedLevel> iterator = _cache.values().iterator();
+
+        while (_weight > _maxWeight && iterator.hasNext()) {
+            CachedLevel cached = iterator.next();
+
+            if (cached == keep || cached._weight == 0) continue;
+
+            iterator.remove();
+
+            _weight -= cached._weight;
+        }
+    }
+
+    /**
+     * Level of the given name, read from its pack if not cached.
+     *
+     * @param name      level name
+     * @return          level, null if not indexed
+     * @throws IOException      the level cannot be read
+     */
+    @Nullable
+    public Level get(@Nonnull String name) throws IOException {
+        Location location = _index.get(name);
+
+        if (location == null) return null;
+
+        CachedLevel cached;
+        boolean loader;
+
+        synchronized (this) {
+            cached = _cache.get(name);
+            loader = cached == null;
+
+            if (loader) {
+                _missCount++;
+
+                cached = new CachedLevel();
+
+                _cache.put(name, cached);
+            } else {
+                _hitCount++;
+            }
+        }
+
+        if (loader) {
+            Level level;
+
+            try {
+                level = load(location);
+            } catch (IOException | RuntimeException e) {
+                synchronized (this) {
+                    _cache.remove(name, cached);
+                }
+
+                cached._level.completeExceptionally(e);
+
+                throw e;
+            }
+
+            synchronized (this) {
+                cached._weight = weigh(level);
+
+                // the entry may have been dropped by clear() meanwhile
+                if (_cache.get(name) == cached) {
+                    _weight += cached._weight;
+
+                    evict(cached);
+                }
+            }
+
+            cached._level.complete(level);
+
+            return level;
+        }
+
+        try {
+            return cached._level.join();
+        } catch (CompletionException e) {
+            throw new IOException("loading level " + name + " failed", e.getCause());
+        }
+    }
+
+    /**
+     * Drops all cached levels, the index is kept.
+     */
+    public synchronized void clear() {
+        _cache.clear();
+        _weight = 0;
+    }
+
+    /**
+     * Amount of requests answered from the cache, including those that waited for a concurrent load.
+     *
+     * @return      cache hits
+     */
+    public synchronized long getHitCount() {
+        return _hitCount;
+    }
+
+    /**
+     * Amount of requests that read their level from the pack.
+     *
+     * @return      cache misses
+     */
+    public synchronized long getMissCount() {
+        return _missCount;
+    }
+
+    /**
+     * Estimated memory held by the cached levels.
+     *
+     * @return      weight in bytes
+     */
+    public synchronized long getWeight() {
+        return _weight;
+    }
+
+    /**
+     * Creates an empty registry with a cache of {@link #DEFAULT_MAX_WEIGHT}.
+     */
+    public LevelRegistry() {
+        this(DEFAULT_MAX_WEIGHT);
+    }
+
+    /**
+     * Creates an empty registry.
+     *
+     * @param maxWeight     bound of the estimated memory of the cached levels in bytes, the most recently loaded
+     *                      level is kept even if it exceeds the bound alone
+     */
+    public LevelRegistry(long maxWeight) {
+        if (maxWeight < 0) throw new IllegalArgumentException("negative cache weight " + maxWeight);
+
+        _maxWeight = maxWeight;
+    }
+}
@@ -1,36 +1,108 @@
 package core;
 
-import javafx.util.Pair;
-
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import java.util.LinkedHashSet;
 import java.util.Set;
 
 public class LevelRun {
     private final Level _level;
-    private final RobotAlgo _algo;
+    private final RobotProgram _program;
 
-    private final Set<Pair<Integer, Integer>> _remainingSwitches = new LinkedHashSet<>();
+    /**
+     * switches still to be activated, bit i stands for the switch of ordinal i (see {@link Level#getSwitchOrdinal})
+     */
+    private final long[] _switchState;
+    private int _remainingSwitchCount;
+    private long _switchStateHash = 0;
 
     /**
      * Switches that still need to be activated for victory.
      *
-     * @return      set of remaining switch locations (x/y pairs)
+     * @return      set of remaining switch locations, ordered by switch ordinal
      */
-    public Set<Pair<Integer, Integer>> getRemainingSwitches() {
-        return new LinkedHashSet<>(_remainingSwitches);
+    @Nonnull
+    public Set<Position> getRemainingSwitches() {
+        Set<Position> remainingSwitches = new LinkedHashSet<>();
+
+        for (int ordinal = 0; ordinal < _level.getSwitchCount(); ordinal++) {
+            if (isRemaining(ordinal)) remainingSwitches.add(new Position(_level.getSwitchX(ordinal), _level.getSwitchY(ordinal)));
+        }
+
+        return remainingSwitches;
     }
 
-    private int _curX;
+    /**
+     * Amount of switches that still need to be activated for victory.
+     *
+     * @return      amount of remaining switches
+     */
+    public int getRemainingSwitchCount() {
+        return _remainingSwitchCount;
+    }
 
-    public int getCurX() {
-        return _curX;
+    private boolean isRemaining(int ordinal) {
+        return (_switchState[ordinal >>> 6] & (1L << ordinal)) != 0;
+    }
+
+    /**
+     * Whether the given tile is a switch that still needs to be activated.
+     *
+     * @param x     x coordinate
+     * @param y     y coordinate
+     * @return      true if the tile is a remaining switch
+     */
+    public boolean isSwitchRemaining(int x, int y) {
+        int ordinal = _level.getSwitchOrdinal(x, y);
+
+        return ordinal >= 0 && isRemaining(ordinal);
+    }
+
+    /**
+     * Snapshot of the switch state.
+     *
+     * @return      remaining switches as bit set words, bit i of word i / 64 stands for the switch of ordinal i
+     */
+    @Nonnull
+    public long[] getSwitchState() {
+        return _switchState.clone();
     }
 
-    private int _curY;
+    /**
+     * Hash of the switch state, maintained incrementally, so it is free to query. Equal switch states of runs on the
+     * same level have equal hashes.
+     *
+     * @return      64 bit hash of the remaining switches
+     */
+    public long getSwitchStateHash() {
+        return _switchStateHash;
+    }
+
+    /**
+     * Zobrist key of a switch, the state hash is the xor of the keys of all remaining switches.
+     */
+    private static long switchKey(int ordinal) {
+        // splitmix64 finalizer
+        long z = (ordinal + 1) * 0x9E3779B97F4A7C15L;
+
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+
+        return z ^ (z >>> 31);
+    }
+
+    private final MovementGraph _graph;
+    /**
+     * row-major index of the tile the robot is on
+     */
+    private int _tile;
+
+    public int getCurX() {
+        return _graph.x(_tile);
+    }
 
     public int getCurY() {
-        return _curY;
+        return _graph.y(_tile);
     }
 
     public final static int DIR_LEFT = 0;
@@ -44,15 +116,144 @@ public class LevelRun {
         return _dir;
     }
 
-    private boolean _started = false;
     private boolean _over = false;
 
+    /**
+     * interpreter state between {@link #advance(int, long, int)} and {@link #exec(long, int)}
+     */
+    private int _pc = 0;
+    private int _sp = 0;
+    private int[] _stack = null;
+    /**
+     * instructions of the program, a private copy once the run is advanced, which then gets pause instructions patched
+     * in
+     */
+    private int[] _code;
+
+    /**
+     * {@link RobotProgram#OP_HALT} with an operand, which makes the interpreter pause instead of halting
+     */
+    private final static int PAUSE = RobotProgram.OP_HALT | (1 << RobotProgram.OP_BITS);
+
+    /**
+     * outcome of a run
+     */
+    public enum Result {
+        /**
+         * the program halted with all switches activated
+         */
+        SOLVED,
+        /**
+         * the program halted with switches remaining
+         */
+        UNSOLVED,
+        /**
+         * the step budget was exhausted before the program halted
+         */
+        TIMEOUT,
+        /**
+         * the program provably never halts, it was not executed
+         */
+        LOOP,
+        /**
+         * function calls were nested deeper than allowed, only possible with a call depth below
+         * {@link RobotProgram#getMaxDepth()}
+         */
+        OVERFLOW
+    }
+
+    /**
+     * step budget for {@link #exec(long, int)} that never runs out
+     */
+    public final static long UNLIMITED_STEPS = Long.MAX_VALUE;
+    /**
+     * call depth allowed by {@link #exec()}. Programs with a reachable call cycle yield {@link Result#LOOP} without
+     * being run, the others nest at most two calls deep, so this default never causes {@link Result#OVERFLOW}.
+     */
+    public final static int DEFAULT_MAX_DEPTH = 1024;
+
+    /**
+     * Immutable snapshot of a run paused before an action of the main group, see {@link #checkpoint()}. As the main
+     * group is only executed at the top level, the call stack is empty then, so a checkpoint is valid for any program
+     * on the same level with the same function groups and the same main group up to the paused action.
+     */
+    public final static class Checkpoint {
+        private final Level _level;
+        private final int _mainIndex;
+        private final int _tile;
+        private final int _dir;
+        private final long[] _switchState;
+        private final int _remainingSwitchCount;
+        private final long _switchStateHash;
+        private final long _steps;
+
+        /**
+         * Index of the main group action the run was paused before.
+         *
+         * @return      main index
+         */
+        public int getMainIndex() {
+            return _mainIndex;
+        }
+
+        /**
+         * Amount of actions executed up to the checkpoint, function calls included.
+         *
+         * @return      executed steps
+         */
+        public long getSteps() {
+            return _steps;
+        }
+
+        /**
+         * Amount of switches still to be activated at the checkpoint.
+         *
+         * @return      remaining switches
+         */
+        public int getRemainingSwitchCount() {
+            return _remainingSwitchCount;
+        }
+
+        private Checkpoint(@Nonnull LevelRun run) {
+            _level = run._level;
+            _mainIndex = run._pc;
+            _tile = run._tile;
+            _dir = run._dir;
+            _switchState = run._switchState.clone();
+            _remainingSwitchCount = run._remainingSwitchCount;
+            _switchStateHash = run._switchStateHash;
+            _steps = run._steps;
+        }
+    }
+
+    private Result _result = null;
+
+    /**
+     * Accessor method for the outcome of the run.
+     *
+     * @return      result, null if not yet executed
+     */
+    public Result getResult() {
+        return _result;
+    }
+
+    private long _steps = 0;
+
+    /**
+     * Amount of actions executed so far, function calls included.
+     *
+     * @return      executed steps
+     */
+    public long getSteps() {
+        return _steps;
+    }
+
     public interface ActionHandler {
         /**
          * LevelRun has finished. Is called directly at the end of {@link #exec()} after the given algorithm has
-         * been completed.
+         * been completed or aborted (see {@link Result}).
          *
-         * @param success   all switched are activated
+         * @param success   all switched are activated, false as well when the run was aborted
          */
         void result(boolean success);
 
@@ -86,142 +287,399 @@ public class LevelRun {
          * @param y         y coordinate of the switch
          */
         void useSwitch(int x, int y);
+
+        /**
+         * Called when a move or jump action was blocked by the terrain, the robot stays in place.
+         *
+         * @param x         x coordinate of the robot
+         * @param y         y coordinate of the robot
+         */
+        default void bump(int x, int y) {
+        }
+
+        /**
+         * Handler that ignores all events. Runs given this handler skip event dispatch entirely.
+         */
+        ActionHandler NONE = new ActionHandler() {
+            @Override
+            public void result(boolean success) {
+            }
+
+            @Override
+            public void action() {
+            }
+
+            @Override
+            public void turn(int newDir, int oldDir) {
+            }
+
+            @Override
+            public void move(int newX, int newY, int oldX, int oldY) {
+            }
+
+            @Override
+            public void useSwitch(int x, int y) {
+            }
+        };
     }
 
     private final ActionHandler _actionHandler;
+    /**
+     * whether events are dispatched at all, false for {@link ActionHandler#NONE}
+     */
+    private final boolean _notify;
 
-    private void finish(boolean success) {
+    private void finish(@Nonnull Result result) {
         if (_over) return;
 
         _over = true;
+        _result = result;
 
-        System.out.println(_level.getName() + (success ? " solved successfully." : " not solved."));
+        boolean success = result == Result.SOLVED;
 
-        _actionHandler.result(success);
+        if (_notify) _actionHandler.result(success);
     }
 
     private void moveForward(boolean jump) {
-        int oldX = _curX;
-        int oldY = _curY;
+        int oldTile = _tile;
+        int newTile = jump ? _graph.jump(oldTile, _dir) : _graph.move(oldTile, _dir);
+
+        if (newTile != MovementGraph.BUMP) {
+            _tile = newTile;
 
-        int newX = oldX;
-        int newY = oldY;
+            if (_notify) _actionHandler.move(_graph.x(newTile), _graph.y(newTile), _graph.x(oldTile), _graph.y(oldTile));
+        } else {
+            if (_notify) _actionHandler.bump(_graph.x(oldTile), _graph.y(oldTile));
+        }
+    }
 
-        switch (_dir) {
-            case DIR_LEFT:
-                // left
-                if (newX > 0) newX--;
+    private void turn(boolean right) {
+        int oldDir = _dir;
 
-                break;
-            case DIR_UP:
-                // up
-                if (newY > 0) newY--;
+        if (right) _dir = _dir == 0 ? 3 : _dir - 1;
+        else _dir = _dir == 3 ? 0 : _dir + 1;
 
-                break;
-            case DIR_RIGHT:
-                // right
-                if (newX < _level.getWidth() - 1) newX++;
+        if (_notify) _actionHandler.turn(_dir, oldDir);
+    }
 
-                break;
-            case DIR_DOWN:
-                // down
-                if (newY < _level.getHeight() - 1) newY++;
+    private void useSwitch() {
+        int ordinal = _graph.switchOrdinal(_tile);
 
-                break;
+        if (ordinal >= 0) {
+            long bit = 1L << ordinal;
+
+            _switchState[ordinal >>> 6] ^= bit;
+            _remainingSwitchCount += (_switchState[ordinal >>> 6] & bit) != 0 ? 1 : -1;
+            _switchStateHash ^= switchKey(ordinal);
+
+            if (_notify) _actionHandler.useSwitch(getCurX(), getCurY());
         }
+    }
 
-        int oldHeight = _level.getHeightMap()[oldX][oldY];
-        int newHeight = _level.getHeightMap()[newX][newY];
+    /**
+     * Interprets the compiled program from the current address until {@link RobotProgram#OP_HALT} or a patched in
+     * pause instruction. Function calls push their return address onto an explicit stack instead of recursing.
+     *
+     * @param maxSteps      amount of actions after which the run is aborted
+     * @param maxDepth      call depth after which the run is aborted
+     * @return              outcome of the run, null if paused by a {@link #PAUSE} instruction
+     */
+    @Nullable
+    private Result interpret(long maxSteps, int maxDepth) {
+        int[] code = _code;
+        // a terminating program never nests deeper than its static call depth
+        int depthLimit = Math.min(maxDepth, _program.getMaxDepth());
 
-        if ((!jump && newHeight == oldHeight) || (jump && Math.abs(newHeight - oldHeight) == 1)) {
-            _curX = newX;
-            _curY = newY;
+        if (_stack == null || _stack.length < depthLimit) _stack = new int[depthLimit];
 
-            _actionHandler.move(_curX, _curY, oldX, oldY);
-        } else {
-            System.out.println("bump");
+        int[] stack = _stack;
+        int sp = _sp;
+        int pc = _pc;
+        long steps = _steps;
+
+        try {
+            while (true) {
+                int insn = code[pc++];
+                int opcode = RobotProgram.opcode(insn);
+
+                if (opcode == RobotProgram.OP_RETURN) {
+                    pc = stack[--sp];
+
+                    // the call counts as an action once the function has returned
+                    if (_notify) _actionHandler.action();
+
+                    continue;
+                }
+
+                if (opcode == RobotProgram.OP_HALT) {
+                    if (insn == PAUSE) {
+                        pc--;
+
+                        return null;
+                    }
+
+                    return _remainingSwitchCount == 0 ? Result.SOLVED : Result.UNSOLVED;
+                }
+
+                if (steps == maxSteps) return Result.TIMEOUT;
+
+                steps++;
+
+                switch (opcode) {
+                    case RobotProgram.OP_ROTATE_LEFT:
+                        turn(false);
+
+                        break;
+                    case RobotProgram.OP_ROTATE_RIGHT:
+                        turn(true);
+
+                        break;
+                    case RobotProgram.OP_MOVE:
+                        moveForward(false);
+
+                        break;
+                    case RobotProgram.OP_JUMP:
+                        moveForward(true);
+
+                        break;
+                    case RobotProgram.OP_SWITCH:
+                        useSwitch();
+
+                        break;
+                    case RobotProgram.OP_CALL:
+                        if (sp >= depthLimit) return Result.OVERFLOW;
+
+                        stack[sp++] = pc;
+                        pc = RobotProgram.operand(insn);
+
+                        continue;
+                }
+
+                if (_notify) _actionHandler.action();
+            }
+        } finally {
+            _pc = pc;
+            _sp = sp;
+            _steps = steps;
         }
     }
 
-    private void turn(boolean right) {
-        int oldDir = _dir;
+    /**
+     * Interprets the fused form of the program from the current address, see {@link RobotProgram}. Only valid for
+     * runs without events, which cannot tell a fused run of actions from the single actions. Once the step budget
+     * does not cover a whole fused instruction anymore, the address and the stack are translated back to the exact
+     * form, so {@link #interpret(long, int)} can finish the run and time out at the exact action.
+     *
+     * @param maxSteps      amount of actions after which the run is aborted
+     * @param maxDepth      call depth after which the run is aborted
+     * @return              outcome of the run, null if the rest is left to the exact form
+     */
+    @Nullable
+    private Result interpretFused(long maxSteps, int maxDepth) {
+        int[] code = _program.fusedCode();
+        int depthLimit = Math.min(maxDepth, _program.getMaxDepth());
 
-        if (right) _dir = _dir == 0 ? 3 : _dir - 1;
-        else _dir = _dir == 3 ? 0 : _dir + 1;
+        if (_stack == null || _stack.length < depthLimit) _stack = new int[depthLimit];
 
-        _actionHandler.turn(_dir, oldDir);
-    }
+        int[] stack = _stack;
+        int sp = _sp;
+        int pc = _program.fusedAddress(_pc);
+        long steps = _steps;
 
-    private void applyAction(@Nonnull RobotAction action) {
-        RobotAction.Type actionType = action.getType();
+        try {
+            while (true) {
+                int insn = code[pc++];
+                int opcode = RobotProgram.opcode(insn);
 
-        switch (actionType) {
-            case ROTATE_LEFT:
-                turn(false);
+                switch (opcode) {
+                    case RobotProgram.OP_RETURN:
+                        pc = stack[--sp];
 
-                break;
-            case ROTATE_RIGHT:
-                turn(true);
+                        continue;
+                    case RobotProgram.OP_HALT:
+                        return _remainingSwitchCount == 0 ? Result.SOLVED : Result.UNSOLVED;
+                    case RobotProgram.OP_MOVE_N:
+                    case RobotProgram.OP_ROTATE_N:
+                        int count = RobotProgram.actionCount(insn);
 
-                break;
-            case MOVE:
-                moveForward(false);
+                        if (maxSteps - steps < count) {
+                            _pc = _program.origin(pc - 1);
 
-                break;
-            case JUMP:
-                moveForward(true);
+                            for (int i = 0; i < sp; i++) stack[i] = _program.origin(stack[i]);
 
-                break;
-            case SWITCH:
-                if (_level.getSwitchMap()[_curX][_curY]) {
-                    Pair<Integer, Integer> pos = new Pair<>(_curX, _curY);
+                            return null;
+                        }
 
-                    if (_remainingSwitches.contains(pos)) {
-                        _remainingSwitches.remove(new Pair<>(_curX, _curY));
-                    } else {
-                        _remainingSwitches.add(new Pair<>(_curX, _curY));
-                    }
+                        steps += count;
 
-                    _actionHandler.useSwitch(_curX, _curY);
+                        if (opcode == RobotProgram.OP_MOVE_N) _tile = _graph.advance(_tile, _dir, count);
+                        else _dir = (_dir + RobotProgram.operand(insn)) & 3;
+
+                        continue;
                 }
 
-                break;
-            case F1:
-                startGroup(_algo.getF1Group());
+                if (steps == maxSteps) return Result.TIMEOUT;
+
+                steps++;
+
+                switch (opcode) {
+                    case RobotProgram.OP_ROTATE_LEFT:
+                        turn(false);
+
+                        break;
+                    case RobotProgram.OP_ROTATE_RIGHT:
+                        turn(true);
+
+                        break;
+                    case RobotProgram.OP_MOVE:
+                        moveForward(false);
 
-                break;
-            case F2:
-                startGroup(_algo.getF2Group());
+                        break;
+                    case RobotProgram.OP_JUMP:
+                        moveForward(true);
 
-                break;
+                        break;
+                    case RobotProgram.OP_SWITCH:
+                        useSwitch();
+
+                        break;
+                    case RobotProgram.OP_CALL:
+                        if (sp >= depthLimit) return Result.OVERFLOW;
+
+                        stack[sp++] = pc;
+                        pc = RobotProgram.operand(insn);
+
+                        break;
+                }
+            }
+        } finally {
+            _sp = sp;
+            _steps = steps;
         }
+    }
+
+    private void checkLimits(long maxSteps, int maxDepth) {
+        if (_over) throw new IllegalStateException("already finished");
+        if (maxSteps < 0) throw new IllegalArgumentException("negative step budget " + maxSteps);
+        if (maxDepth < 0) throw new IllegalArgumentException("negative call depth " + maxDepth);
+    }
 
-        _actionHandler.action();
+    /**
+     * Executes the run without a step budget. One-shot.
+     *
+     * @return      outcome of the run
+     */
+    @Nonnull
+    public Result exec() {
+        return exec(UNLIMITED_STEPS, DEFAULT_MAX_DEPTH);
     }
 
-    private void startGroup(@Nonnull RobotAlgo.Group group) {
-        for (RobotAction action : group.getActions()) {
-            if (_over) break;
+    /**
+     * Executes the run, or the rest of it after {@link #advance(int, long, int)}. One-shot. Programs that provably
+     * never halt are not executed at all and yield {@link Result#LOOP}. Runs without an {@link ActionHandler} execute
+     * the fused form of the program, which yields the same result, steps and final state.
+     *
+     * @param maxSteps      amount of actions (function calls included) after which the run is aborted with
+     *                      {@link Result#TIMEOUT}, see {@link #UNLIMITED_STEPS}
+     * @param maxDepth      call depth beyond which the run is aborted with {@link Result#OVERFLOW}, which only
+     *                      happens if below {@link RobotProgram#getMaxDepth()}
+     * @return              outcome of the run
+     */
+    @Nonnull
+    public Result exec(long maxSteps, int maxDepth) {
+        checkLimits(maxSteps, maxDepth);
+
+        if (!_program.isTerminating()) {
+            finish(Result.LOOP);
 
-            applyAction(action);
+            return _result;
         }
+
+        Result result = null;
+
+        // paused runs may sit within a fused run of actions, their stack is empty though
+        if (!_notify && _program.fusedAddress(_pc) >= 0) result = interpretFused(maxSteps, maxDepth);
+        if (result == null) result = interpret(maxSteps, maxDepth);
+
+        finish(result);
+
+        return _result;
     }
 
-    private void startAlgo(@Nonnull RobotAlgo algo) {
-        startGroup(algo.getMainGroup());
+    /**
+     * Executes the run up to an action of the main group and pauses before it, so a {@link #checkpoint()} can be
+     * taken. The run is continued by further calls to this method or {@link #exec(long, int)}, which must be given
+     * the same limits.
+     *
+     * @param mainIndex     index of the main group action to pause before, up to the main group length to pause
+     *                      before halting
+     * @param maxSteps      see {@link #exec(long, int)}
+     * @param maxDepth      see {@link #exec(long, int)}
+     * @return              true if paused, false if the run ended before, its result is available then
+     * @throws IllegalArgumentException     the index is outside of the main group or behind the current one
+     */
+    public boolean advance(int mainIndex, long maxSteps, int maxDepth) {
+        checkLimits(maxSteps, maxDepth);
+
+        if (mainIndex > _program.getMainLength() || mainIndex < _pc) throw new IllegalArgumentException("cannot advance from main index " + _pc + " to " + mainIndex);
+
+        if (!_program.isTerminating()) {
+            finish(Result.LOOP);
+
+            return false;
+        }
+
+        if (_code == _program.code()) _code = _code.clone();
+
+        int insn = _code[mainIndex];
+
+        _code[mainIndex] = PAUSE;
+
+        Result result;
 
-        finish(_remainingSwitches.isEmpty());
+        try {
+            result = interpret(maxSteps, maxDepth);
+        } finally {
+            _code[mainIndex] = insn;
+        }
+
+        if (result == null) return true;
+
+        finish(result);
+
+        return false;
     }
 
     /**
-     * Executes the run. One-shot.
+     * Takes a snapshot of the run, which must not have started yet or be paused by {@link #advance(int, long, int)}.
+     *
+     * @return      checkpoint to resume from, see {@link #LevelRun(Level, RobotProgram, ActionHandler, Checkpoint)}
      */
-    public void exec() {
-        if (_started) throw new IllegalStateException("already started");
+    @Nonnull
+    public Checkpoint checkpoint() {
+        if (_over) throw new IllegalStateException("already finished");
 
-        _started = true;
+        return new Checkpoint(this);
+    }
 
-        startAlgo(_algo);
+    /**
+     * Constructs an individual exec of a level without event handling.
+     *
+     * @param      level            base level
+     * @param      algo             algorithm (robot actions) to execute
+     */
+    public LevelRun(@Nonnull Level level, @Nonnull RobotAlgo algo) {
+        this(level, RobotProgram.compile(algo), ActionHandler.NONE);
+    }
+
+    /**
+     * Constructs an individual exec of a level from an already compiled algorithm without event handling.
+     *
+     * @param      level            base level
+     * @param      program          compiled algorithm to execute
+     */
+    public LevelRun(@Nonnull Level level, @Nonnull RobotProgram program) {
+        this(level, program, ActionHandler.NONE);
     }
 
     /**
@@ -232,22 +690,66 @@ public class LevelRun {
      * @param      actionHandler    callback for various events during execution
      */
     public LevelRun(@Nonnull Level level, @Nonnull RobotAlgo algo, @Nonnull ActionHandler actionHandler) {
+        this(level, RobotProgram.compile(algo), actionHandler);
+    }
+
+    /**
+     * Constructs an individual exec of a level from an already compiled algorithm. Programs are immutable and may be
+     * shared by any number of runs.
+     *
+     * @param      level            base level
+     * @param      program          compiled algorithm to execute
+     * @param      actionHandler    callback for various events during execution
+     */
+    public LevelRun(@Nonnull Level level, @Nonnull RobotProgram program, @Nonnull ActionHandler actionHandler) {
+        this(level, program, actionHandler, null);
+    }
+
+    /**
+     * Constructs an individual exec of a level resuming from a checkpoint. Only subsequent events are reported to the
+     * handler. The program is expected to share the function groups and the main group up to the checkpoint with the
+     * program the checkpoint was taken from, which cannot be verified here.
+     *
+     * @param      level            base level, the one of the checkpoint
+     * @param      program          compiled algorithm to execute
+     * @param      actionHandler    callback for various events during execution
+     * @param      checkpoint       state to resume from, null to start from the beginning
+     * @throws     IllegalArgumentException     the checkpoint belongs to another level or lies beyond the main group
+     */
+    public LevelRun(@Nonnull Level level, @Nonnull RobotProgram program, @Nonnull ActionHandler actionHandler, @Nullable Checkpoint checkpoint) {
         _level = level;
-        _algo = algo;
+        _program = program;
+        _code = program.code();
         _actionHandler = actionHandler;
+        _notify = actionHandler != ActionHandler.NONE;
 
-        _curX = _level.getStartPos().getKey();
-        _curY = _level.getStartPos().getValue();
+        _graph = _level.getMovementGraph();
+        _tile = _graph.tile(_level.getStartPos().getX(), _level.getStartPos().getY());
         _dir = _level.getStartDir();
 
-        Boolean[][] switchMap = level.getSwitchMap();
+        int switchCount = _level.getSwitchCount();
 
-        for (int x = 0; x < _level.getWidth(); x++) {
-            for (int y = 0; y < _level.getHeight(); y++) {
-                if (switchMap[x][y]) {
-                    _remainingSwitches.add(new Pair<>(x, y));
-                }
-            }
+        _switchState = new long[(switchCount + 63) >>> 6];
+        _remainingSwitchCount = switchCount;
+
+        if (checkpoint != null) {
+            if (checkpoint._level != level) throw new IllegalArgumentException("checkpoint of level " + checkpoint._level + " does not belong to level " + level);
+            if (checkpoint._mainIndex > program.getMainLength()) throw new IllegalArgumentException("checkpoint at main index " + checkpoint._mainIndex + " beyond main group of length " + program.getMainLength());
+
+            _tile = checkpoint._tile;
+            _dir = checkpoint._dir;
+            System.arraycopy(checkpoint._switchState, 0, _switchState, 0, _switchState.length);
+            _remainingSwitchCount = checkpoint._remainingSwitchCount;
+            _switchStateHash = checkpoint._switchStateHash;
+            _steps = checkpoint._steps;
+            _pc = checkpoint._mainIndex;
+
+            return;
+        }
+
+        for (int ordinal = 0; ordinal < switchCount; ordinal++) {
+            _switchState[ordinal >>> 6] |= 1L << ordinal;
+            _switchStateHash ^= switchKey(ordinal);
         }
     }
 }
@@ -0,0 +1,528 @@
+package core;
+
+import util.LongLongMap;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Searches the shortest robot algorithm (fewest actions over all three groups) that solves a level.
+ *
+ * Function bodies are enumerated by increasing combined length, for each pair of bodies the shortest main group is
+ * found by a breadth-first search over robot states (x, y, direction, remaining switches). Pairs of the same combined
+ * length are searched in parallel. Pruned are
+ * <ul>
+ *     <li>action sequences that cancel out or have a shorter equivalent (<code>l r</code>, <code>r l</code>,
+ *     <code>s s</code>, <code>r r</code> in favor of <code>l l</code>, <code>l l l</code>)</li>
+ *     <li>functions of a single action, which can always be inlined at no cost</li>
+ *     <li>programs differing only by the naming of the functions: function 2 is only used if function 1 is, two
+ *     independent functions are ordered and a function calling the other one is function 2, as far as the renamed
+ *     functions fit the slot limits</li>
+ *     <li>recursive functions, which never terminate</li>
+ *     <li>states already reached by a shorter main group</li>
+ * </ul>
+ * The effects of the functions are memoized per start state.
+ */
+public class LevelSolver {
+    private final static RobotAction.Type[] BASE_ALPHABET = {
+            RobotAction.Type.ROTATE_LEFT, RobotAction.Type.ROTATE_RIGHT, RobotAction.Type.MOVE, RobotAction.Type.JUMP, RobotAction.Type.SWITCH
+    };
+
+    private final static RobotAction.Type[] EMPTY = new RobotAction.Type[0];
+
+    /**
+     * bit layout of a robot state: direction, tile index, remaining switches (one bit per switch ordinal)
+     */
+    private static class StateSpace {
+        private final Level _level;
+        private final MovementGraph _graph;
+        private final int _maskShift;
+        private final long _tileMask;
+
+        private long encode(int tile, int dir, long remaining) {
+            return (remaining << _maskShift) | ((long) tile << 2) | dir;
+        }
+
+        private int dir(long state) {
+            return (int) (state & 3);
+        }
+
+        private int tile(long state) {
+            return (int) ((state >>> 2) & _tileMask);
+        }
+
+        private boolean solved(long state) {
+            return (state >>> _maskShift) == 0;
+        }
+
+        private long start() {
+            int switchCount = _level.getSwitchCount();
+
+            return encode(_graph.tile(_level.getStartPos().getX(), _level.getStartPos().getY()), _level.getStartDir(), switchCount == 0 ? 0 : -1L >>> (64 - switchCount));
+        }
+
+        private StateSpace(@Nonnull Level level) {
+            _level = level;
+            _graph = level.getMovementGraph();
+
+            int tileBits = 32 - Integer.numberOfLeadingZeros(level.getWidth() * level.getHeight() - 1);
+
+            _maskShift = 2 + tileBits;
+            _tileMask = (1L << tileBits) - 1;
+
+            if (_maskShift + level.getSwitchCount() > 63) throw new IllegalArgumentException("level " + level.getName() + " has too many tiles and switches to be solved");
+        }
+    }
+
+    /**
+     * breadth-first search state of one worker, reused for all function pairs the worker handles
+     */
+    private static class Search {
+        private final StateSpace _space;
+        private final LongLongMap _visited = new LongLongMap(1 << 10);
+        private final LongLongMap _f1Memo = new LongLongMap(1 << 8);
+        private final LongLongMap _f2Memo = new LongLongMap(1 << 8);
+
+        private long[] _queue = new long[1 << 10];
+        private int[] _parents = new int[1 << 10];
+        private RobotAction.Type[] _actions = new RobotAction.Type[1 << 10];
+
+        private RobotAction.Type[] _f1;
+        private RobotAction.Type[] _f2;
+
+        private long move(long state, boolean jump) {
+            int dir = _space.dir(state);
+            int tile = _space.tile(state);
+            int newTile = jump ? _space._graph.jump(tile, dir) : _space._graph.move(tile, dir);
+
+            if (newTile == MovementGraph.BUMP) return state;
+
+            return (state & ~(_space._tileMask << 2)) | ((long) newTile << 2);
+        }
+
+        private long call(long state, @Nonnull RobotAction.Type[] body, @Nonnull LongLongMap memo) {
+            long result = memo.get(state);
+
+            if (result != LongLongMap.ABSENT) return result;
+
+            result = state;
+
+            for (RobotAction.Type type : body) {
+                result = apply(result, type);
+            }
+
+            memo.putIfAbsent(state, result);
+
+            return result;
+        }
+
+        private long apply(long state, @Nonnull RobotAction.Type type) {
+            switch (type) {
+                case ROTATE_LEFT: {
+                    int dir = _space.dir(state);
+
+                    return (state & ~3L) | (dir == 3 ? 0 : dir + 1);
+                }
+                case ROTATE_RIGHT: {
+                    int dir = _space.dir(state);
+
+                    return (state & ~3L) | (dir == 0 ? 3 : dir - 1);
+                }
+                case MOVE:
+                    return move(state, false);
+                case JUMP:
+                    return move(state, true);
+                case SWITCH: {
+                    int ordinal = _space._graph.switchOrdinal(_space.tile(state));
+
+                    if (ordinal < 0) return state;
+
+                    return state ^ (1L << (_space._maskShift + ordinal));
+                }
+                case F1:
+                    return call(state, _f1, _f1Memo);
+                case F2:
+                    return call(state, _f2, _f2Memo);
+            }
+
+            throw new IllegalArgumentException("unknown action " + type);
+        }
+
+        private void append(int index, long state, int parent, @Nonnull RobotAction.Type action) {
+            if (index == _queue.length) {
+                _queue = Arrays.copyOf(_queue, index * 2);
+                _parents = Arrays.copyOf(_parents, index * 2);
+                _actions = Arrays.copyOf(_actions, index * 2);
+            }
+
+            _queue[index] = state;
+            _parents[index] = parent;
+            _actions[index] = action;
+        }
+
+        @Nonnull
+        private RobotAction.Type[] path(int index) {
+            int length = 0;
+
+            for (int i = index; _parents[i] >= 0; i = _parents[i]) length++;
+
+            RobotAction.Type[] path = new RobotAction.Type[length];
+
+            for (int i = index; _parents[i] >= 0; i = _parents[i]) path[--length] = _actions[i];
+
+            return path;
+        }
+
+        /**
+         * Finds the shortest main group for the given functions.
+         *
+         * @param limit     maximum length of the main group
+         * @return          main group actions, null if there is none within <code>limit</code>
+         */
+        @Nullable
+        private RobotAction.Type[] shortestMain(@Nonnull RobotAction.Type[] f1, @Nonnull RobotAction.Type[] f2, int limit) {
+            _f1 = f1;
+            _f2 = f2;
+
+            _visited.clear();
+            _f1Memo.clear();
+            _f2Memo.clear();
+
+            RobotAction.Type[] alphabet = Arrays.copyOf(BASE_ALPHABET, BASE_ALPHABET.length + (f1.length > 0 ? 1 : 0) + (f2.length > 0 ? 1 : 0));
+
+            if (f1.length > 0) alphabet[BASE_ALPHABET.length] = RobotAction.Type.F1;
+            if (f2.length > 0) alphabet[alphabet.length - 1] = RobotAction.Type.F2;
+
+            long start = _space.start();
+
+            if (_space.solved(start)) return EMPTY;
+
+            append(0, start, -1, RobotAction.Type.MOVE);
+
+            _visited.putIfAbsent(start, 0);
+
+            int size = 1;
+            int levelStart = 0;
+
+            for (int depth = 1; depth <= limit && levelStart < size; depth++) {
+                int levelEnd = size;
+
+                for (int i = levelStart; i < levelEnd; i++) {
+                    long state = _queue[i];
+
+                    for (RobotAction.Type type : alphabet) {
+                        long next = apply(state, type);
+
+                        if (_visited.putIfAbsent(next, size) != LongLongMap.ABSENT) continue;
+
+                        append(size, next, i, type);
+
+                        if (_space.solved(next)) return path(size);
+
+                        size++;
+                    }
+                }
+
+                levelStart = levelEnd;
+            }
+
+            return null;
+        }
+
+        private Search(@Nonnull StateSpace space) {
+            _space = space;
+        }
+    }
+
+    /**
+     * shortest solution found so far, ties are broken by the enumeration order of the function pairs
+     */
+    private static class Solution {
+        private final int _length;
+        private final int _functionLength;
+        private final int _f1Length;
+        private final int _f1Index;
+        private final int _f2Index;
+
+        private final RobotAction.Type[] _main;
+        private final RobotAction.Type[] _f1;
+        private final RobotAction.Type[] _f2;
+
+        private boolean precedes(int functionLength, int f1Length, int f1Index, int f2Index) {
+            if (_functionLength != functionLength) return _functionLength < functionLength;
+            if (_f1Length != f1Length) return _f1Length < f1Length;
+            if (_f1Index != f1Index) return _f1Index < f1Index;
+
+            return _f2Index < f2Index;
+        }
+
+        private boolean isBetterThan(@Nullable Solution other) {
+            if (other == null) return true;
+            if (_length != other._length) return _length < other._length;
+
+            return !other.precedes(_functionLength, _f1Length, _f1Index, _f2Index);
+        }
+
+        private Solution(@Nonnull RobotAction.Type[] main, @Nonnull RobotAction.Type[] f1, @Nonnull RobotAction.Type[] f2, int f1Index, int f2Index) {
+            _main = main;
+            _f1 = f1;
+            _f2 = f2;
+            _length = main.length + f1.length + f2.length;
+            _functionLength = f1.length + f2.length;
+            _f1Length = f1.length;
+            _f1Index = f1Index;
+            _f2Index = f2Index;
+        }
+    }
+
+    /**
+     * Checks whether <code>type</code> may follow the given body prefix, see the pruning rules above.
+     */
+    private static boolean canAppend(@Nonnull RobotAction.Type[] prefix, int length, @Nonnull RobotAction.Type type) {
+        if (length == 0) return true;
+
+        RobotAction.Type last = prefix[length - 1];
+
+        switch (type) {
+            case ROTATE_LEFT:
+                if (last == RobotAction.Type.ROTATE_RIGHT) return false;
+
+                return length < 2 || last != RobotAction.Type.ROTATE_LEFT || prefix[length - 2] != RobotAction.Type.ROTATE_LEFT;
+            case ROTATE_RIGHT:
+                return last != RobotAction.Type.ROTATE_LEFT && last != RobotAction.Type.ROTATE_RIGHT;
+            case SWITCH:
+                return last != RobotAction.Type.SWITCH;
+            default:
+                return true;
+        }
+    }
+
+    private static void enumerate(@Nonnull RobotAction.Type[] alphabet, @Nonnull RobotAction.Type[] prefix, int length, @Nonnull List<RobotAction.Type[]> bodies) {
+        if (length == prefix.length) {
+            bodies.add(prefix.clone());
+
+            return;
+        }
+
+        for (RobotAction.Type type : alphabet) {
+            if (!canAppend(prefix, length, type)) continue;
+
+            prefix[length] = type;
+
+            enumerate(alphabet, prefix, length + 1, bodies);
+        }
+    }
+
+    /**
+     * All pruned function bodies by length.
+     */
+    @Nonnull
+    private static List<List<RobotAction.Type[]>> bodies(@Nonnull RobotAction.Type[] alphabet, int maxLength) {
+        List<List<RobotAction.Type[]>> bodies = new ArrayList<>();
+
+        for (int length = 0; length <= maxLength; length++) {
+            List<RobotAction.Type[]> bodiesOfLength = new ArrayList<>();
+
+            // single actions are never worth a function
+            if (length != 1) enumerate(alphabet, new RobotAction.Type[length], 0, bodiesOfLength);
+
+            bodies.add(bodiesOfLength);
+        }
+
+        return bodies;
+    }
+
+    private static int compare(@Nonnull RobotAction.Type[] a, @Nonnull RobotAction.Type[] b) {
+        if (a.length != b.length) return a.length < b.length ? -1 : 1;
+
+        for (int i = 0; i < a.length; i++) {
+            if (a[i] != b[i]) return a[i].compareTo(b[i]);
+        }
+
+        return 0;
+    }
+
+    private static boolean calls(@Nonnull RobotAction.Type[] body, @Nonnull RobotAction.Type function) {
+        for (RobotAction.Type type : body) {
+            if (type == function) return true;
+        }
+
+        return false;
+    }
+
+    private final ForkJoinPool _pool;
+    private final int _maxMainSlots;
+    private final int _maxF1Slots;
+    private final int _maxF2Slots;
+
+    /**
+     * searches all function 2 bodies of one length against a fixed function 1 body
+     */
+    private class PairTask extends RecursiveAction {
+        private final static long serialVersionUID = 1L;
+
+        private final ThreadLocal<Search> _searches;
+        private final AtomicReference<Solution> _best;
+        private final RobotAction.Type[] _f1;
+        private final int _f1Index;
+        private final List<RobotAction.Type[]> _f2Bodies;
+        private final int _functionLength;
+
+        @Override
+        protected void compute() {
+            Search search = _searches.get();
+            int functionLength = _functionLength;
+            boolean f1CallsF2 = calls(_f1, RobotAction.Type.F2);
+
+            for (int f2Index = 0; f2Index < _f2Bodies.size(); f2Index++) {
+                RobotAction.Type[] f2 = _f2Bodies.get(f2Index);
+                boolean f2CallsF1 = calls(f2, RobotAction.Type.F1);
+
+                // mutual recursion never terminates, calling an empty function wastes a slot
+                if (f1CallsF2 && (f2CallsF1 || f2.length == 0)) continue;
+
+                // the swapped pair is searched instead, if it fits the slot limits
+                if (f2.length <= _maxF1Slots && _f1.length <= _maxF2Slots && (f1CallsF2 || f2.length > 0 && !f2CallsF1 && compare(_f1, f2) >= 0)) continue;
+
+                Solution best = _best.get();
+
+                int limit = _maxMainSlots;
+
+                if (best != null) {
+                    int budget = best._length - functionLength - (best.precedes(functionLength, _f1.length, _f1Index, f2Index) ? 1 : 0);
+
+                    limit = Math.min(limit, budget);
+                }
+
+                // a main group is needed to call the functions
+                if (limit < (functionLength > 0 ? 1 : 0)) continue;
+
+                RobotAction.Type[] main = search.shortestMain(_f1, f2, limit);
+
+                if (main == null) continue;
+
+                Solution solution = new Solution(main, _f1, f2, _f1Index, f2Index);
+
+                _best.accumulateAndGet(solution, (cur, next) -> next.isBetterThan(cur) ? next : cur);
+            }
+        }
+
+        private PairTask(@Nonnull ThreadLocal<Search> searches, @Nonnull AtomicReference<Solution> best, @Nonnull RobotAction.Type[] f1, int f1Index, @Nonnull List<RobotAction.Type[]> f2Bodies, int f2Length) {
+            _searches = searches;
+            _best = best;
+            _f1 = f1;
+            _f1Index = f1Index;
+            _f2Bodies = f2Bodies;
+            _functionLength = f1.length + f2Length;
+        }
+    }
+
+    @Nonnull
+    private static RobotAlgo toAlgo(@Nonnull Solution solution) {
+        RobotAlgo algo = new RobotAlgo();
+
+        for (RobotAction.Type type : solution._main) algo.getMainGroup().addAction(type);
+        for (RobotAction.Type type : solution._f1) algo.getF1Group().addAction(type);
+        for (RobotAction.Type type : solution._f2) algo.getF2Group().addAction(type);
+
+        return algo;
+    }
+
+    /**
+     * Searches the shortest algorithm that leaves no switches remaining.
+     *
+     * @param level     level to solve
+     * @return          shortest solution within the slot limits, null if there is none
+     */
+    @Nullable
+    public RobotAlgo solve(@Nonnull Level level) {
+        StateSpace space = new StateSpace(level);
+
+        ThreadLocal<Search> searches = ThreadLocal.withInitial(() -> new Search(space));
+        AtomicReference<Solution> best = new AtomicReference<>();
+
+        // with equal slot limits, a caller in function 1 can always be renamed to function 2
+        RobotAction.Type[] f1Alphabet = BASE_ALPHABET;
+
+        if (_maxF1Slots != _maxF2Slots) {
+            f1Alphabet = Arrays.copyOf(BASE_ALPHABET, BASE_ALPHABET.length + 1);
+
+            f1Alphabet[BASE_ALPHABET.length] = RobotAction.Type.F2;
+        }
+
+        List<List<RobotAction.Type[]>> f1Bodies = bodies(f1Alphabet, _maxF1Slots);
+
+        RobotAction.Type[] f2Alphabet = Arrays.copyOf(BASE_ALPHABET, BASE_ALPHABET.length + 1);
+
+        f2Alphabet[BASE_ALPHABET.length] = RobotAction.Type.F1;
+
+        List<List<RobotAction.Type[]>> f2Bodies = bodies(f2Alphabet, _maxF2Slots);
+
+        for (int functionLength = 0; functionLength <= _maxF1Slots + _maxF2Slots; functionLength++) {
+            Solution cur = best.get();
+
+            if (cur != null && cur._length <= functionLength + 1) break;
+
+            List<PairTask> tasks = new ArrayList<>();
+
+            for (int f1Length = 0; f1Length <= Math.min(functionLength, _maxF1Slots); f1Length++) {
+                int f2Length = functionLength - f1Length;
+
+                if (f2Length > _maxF2Slots) continue;
+                // function 2 is only used alongside function 1, unless its body does not fit into function 1
+                if (f2Length > 0 && f1Length == 0 && f2Length <= _maxF1Slots) continue;
+
+                List<RobotAction.Type[]> f1OfLength = f1Bodies.get(f1Length);
+
+                for (int f1Index = 0; f1Index < f1OfLength.size(); f1Index++) {
+                    tasks.add(new PairTask(searches, best, f1OfLength.get(f1Index), f1Index, f2Bodies.get(f2Length), f2Length));
+                }
+            }
+
+            _pool.invoke(new RecursiveAction() {
+                @Override
+                protected void compute() {
+                    invokeAll(tasks);
+                }
+            });
+        }
+
+        Solution solution = best.get();
+
+        return solution == null ? null : toAlgo(solution);
+    }
+
+    /**
+     * Creates a solver on the common pool.
+     *
+     * @param maxMainSlots      maximum amount of actions in the main group
+     * @param maxF1Slots        maximum amount of actions in function 1
+     * @param maxF2Slots        maximum amount of actions in function 2
+     */
+    public LevelSolver(int maxMainSlots, int maxF1Slots, int maxF2Slots) {
+        this(ForkJoinPool.commonPool(), maxMainSlots, maxF1Slots, maxF2Slots);
+    }
+
+    /**
+     * Creates a solver.
+     *
+     * @param pool              pool the search is executed in
+     * @param maxMainSlots      maximum amount of actions in the main group
+     * @param maxF1Slots        maximum amount of actions in function 1
+     * @param maxF2Slots        maximum amount of actions in function 2
+     */
+    public LevelSolver(@Nonnull ForkJoinPool pool, int maxMainSlots, int maxF1Slots, int maxF2Slots) {
+        if (maxMainSlots < 0 || maxF1Slots < 0 || maxF2Slots < 0) throw new IllegalArgumentException("negative slot limit");
+
+        _pool = pool;
+        _maxMainSlots = maxMainSlots;
+        _maxF1Slots = maxF1Slots;
+        _maxF2Slots = maxF2Slots;
+    }
+}
@@ -0,0 +1,204 @@
+package core;
+
+import javax.annotation.Nonnull;
+import java.util.Arrays;
+
+/**
+ * Precomputed outcome of moving and jumping from every tile of a {@link Level} in every direction. Tiles are
+ * identified by their row-major index <code>y * width + x</code>.
+ *
+ * A move onto a neighbor of the same height and a jump onto a neighbor one level higher or lower succeed, anything
+ * else bumps. Moving towards the border of the level leaves the robot on its tile, which counts as a successful move
+ * but a bumped jump. As moves and jumps never succeed from the same tile in the same direction, each pair of tile and
+ * direction is one of four transitions, stored in 2 bits, so the transitions take one byte per tile. The destination
+ * of a successful move or jump is the neighbor in that direction.
+ *
+ * The graph also maps each tile to the ordinal of its switch, so toggling a switch is a single lookup. At four bytes
+ * per tile this table is the larger part of the graph, a binary search over the switch tiles would need none, but
+ * toggles are among the most frequent actions.
+ *
+ * Obtained by {@link Level#getMovementGraph()}, immutable and shared by all runs on the level.
+ */
+public final class MovementGraph {
+    /**
+     * returned by {@link #move(int, int)} and {@link #jump(int, int)} if the robot bumps
+     */
+    public final static int BUMP = -1;
+
+    private final static int BLOCKED = 0;
+    private final static int MOVE = 1;
+    private final static int JUMP = 2;
+    private final static int BORDER = 3;
+
+    private final int _width;
+    /**
+     * transitions of each tile, 2 bits per direction, direction d at bits 2d and 2d + 1
+     */
+    private final byte[] _transitions;
+    /**
+     * tile index offset of the neighbor in each direction
+     */
+    private final int[] _offsets;
+    /**
+     * ordinal of the switch on each tile, -1 if none
+     */
+    private final int[] _switchOrdinals;
+
+    private int transition(int tile, int dir) {
+        return (_transitions[tile] >>> (dir << 1)) & 3;
+    }
+
+    /**
+     * Destination of a move.
+     *
+     * @param tile      tile index of the robot
+     * @param dir       direction of the robot, see constants in LevelRun
+     * @return          tile index of the destination, {@link #BUMP} if blocked
+     */
+    public int move(int tile, int dir) {
+        int transition = transition(tile, dir);
+
+        if (transition == MOVE) return tile + _offsets[dir];
+
+        return transition == BORDER ? tile : BUMP;
+    }
+
+    /**
+     * Destination of a jump.
+     *
+     * @param tile      tile index of the robot
+     * @param dir       direction of the robot, see constants in LevelRun
+     * @return          tile index of the destination, {@link #BUMP} if blocked
+     */
+    public int jump(int tile, int dir) {
+        return transition(tile, dir) == JUMP ? tile + _offsets[dir] : BUMP;
+    }
+
+    /**
+     * Destination of repeated moves in the same direction. The robot stops at the first move that bumps or leaves it
+     * at the border, as all further ones do the same.
+     *
+     * @param tile      tile index of the robot
+     * @param dir       direction of the robot, see constants in LevelRun
+     * @param n         amount of moves
+     * @return          tile index of the destination, the start tile if the first move already fails to advance
+     */
+    public int advance(int tile, int dir, int n) {
+        int offset = _offsets[dir];
+        int shift = dir << 1;
+
+        for (int i = 0; i < n && ((_transitions[tile] >>> shift) & 3) == MOVE; i++) tile += offset;
+
+        return tile;
+    }
+
+    /**
+     * Ordinal of the switch on a tile, see {@link Level#getSwitchOrdinal(int, int)}.
+     *
+     * @param tile      tile index
+     * @return          ordinal of the switch, -1 if the tile is not a switch
+     */
+    public int switchOrdinal(int tile) {
+        return _switchOrdinals[tile];
+    }
+
+    /**
+     * Tile index of a position.
+     *
+     * @param x     x coordinate
+     * @param y     y coordinate
+     * @return      row-major tile index
+     */
+    public int tile(int x, int y) {
+        return y * _width + x;
+    }
+
+    /**
+     * X coordinate of a tile.
+     *
+     * @param tile      tile index
+     * @return          x coordinate
+     */
+    public int x(int tile) {
+        return tile % _width;
+    }
+
+    /**
+     * Y coordinate of a tile.
+     *
+     * @param tile      tile index
+     * @return          y coordinate
+     */
+    public int y(int tile) {
+        return tile / _width;
+    }
+
+    MovementGraph(@Nonnull Level level) {
+        int width = level.getWidth();
+        int height = level.getHeight();
+        short[] heights = level.heights();
+
+        _width = width;
+        _transitions = new byte[width * height];
+        _offsets = new int[4];
+
+        _offsets[LevelRun.DIR_LEFT] = -1;
+        _offsets[LevelRun.DIR_DOWN] = width;
+        _offsets[LevelRun.DIR_RIGHT] = 1;
+        _offsets[LevelRun.DIR_UP] = -width;
+
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int tile = y * width + x;
+                int transitions = 0;
+
+                for (int dir = 0; dir < 4; dir++) {
+                    boolean border;
+
+                    switch (dir) {
+                        case LevelRun.DIR_LEFT:
+                            border = x == 0;
+
+                            break;
+                        case LevelRun.DIR_DOWN:
+                            border = y == height - 1;
+
+                            break;
+                        case LevelRun.DIR_RIGHT:
+                            border = x == width - 1;
+
+                            break;
+                        default:
+                            border = y == 0;
+
+                            break;
+                    }
+
+                    int transition;
+
+                    if (border) {
+                        transition = BORDER;
+                    } else {
+                        int difference = heights[tile + _offsets[dir]] - heights[tile];
+
+                        if (difference == 0) transition = MOVE;
+                        else if (Math.abs(difference) == 1) transition = JUMP;
+                        else transition = BLOCKED;
+                    }
+
+                    transitions |= transition << (dir << 1);
+                }
+
+                _transitions[tile] = (byte) transitions;
+            }
+        }
+
+        _switchOrdinals = new int[width * height];
+
+        Arrays.fill(_switchOrdinals, -1);
+
+        for (int ordinal = 0; ordinal < level.getSwitchCount(); ordinal++) {
+            _switchOrdinals[tile(level.getSwitchX(ordinal), level.getSwitchY(ordinal))] = ordinal;
+        }
+    }
+}
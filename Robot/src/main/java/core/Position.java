@@ -0,0 +1,59 @@
+package core;
+
+/**
+ * Immutable tile coordinates within a level.
+ */
+public final class Position {
+    private final int _x;
+
+    /**
+     * Accessor method for the x coordinate.
+     *
+     * @return      x coordinate
+     */
+    public int getX() {
+        return _x;
+    }
+
+    private final int _y;
+
+    /**
+     * Accessor method for the y coordinate.
+     *
+     * @return      y coordinate
+     */
+    public int getY() {
+        return _y;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) return true;
+        if (!(other instanceof Position)) return false;
+
+        Position position = (Position) other;
+
+        return _x == position._x && _y == position._y;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * _x + _y;
+    }
+
+    @Override
+    public String toString() {
+        return _x + "/" + _y;
+    }
+
+    /**
+     * Constructs a position.
+     *
+     * @param x     x coordinate
+     * @param y     y coordinate
+     */
+    public Position(int x, int y) {
+        _x = x;
+        _y = y;
+    }
+}
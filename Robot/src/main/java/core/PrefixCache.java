@@ -0,0 +1,228 @@
+package core;
+
+import javax.annotation.Nonnull;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Evaluates algorithms on a level resuming from checkpoints of previously evaluated algorithms, so a candidate that
+ * differs from an earlier one only in the tail of its main group re-runs only that tail. Checkpoints are taken every
+ * <code>stride</code> main group actions and keyed by the function groups and the main group prefix. The least
+ * recently used ones are evicted beyond the capacity. Thread-safe, runs happen outside of the lock.
+ *
+ * All runs use the step budget and call depth given at construction, since checkpoints are only valid under the
+ * limits they were reached with.
+ */
+public class PrefixCache {
+    /**
+     * separates the groups in the encoded form of an algorithm, not a {@link RobotAction.Type} ordinal
+     */
+    private final static byte SEPARATOR = -1;
+
+    private final static class Key {
+        private final long _hash;
+        private final int _length;
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof Key && ((Key) other)._hash == _hash && ((Key) other)._length == _length;
+        }
+
+        @Override
+        public int hashCode() {
+            return (int) (_hash ^ (_hash >>> 32));
+        }
+
+        private Key(long hash, int length) {
+            _hash = hash;
+            _length = length;
+        }
+    }
+
+    private final static class CachedCheckpoint {
+        /**
+         * encoded algorithm the checkpoint was taken from, shared by its entries
+         */
+        private final byte[] _encoded;
+        private final int _length;
+        private final LevelRun.Checkpoint _checkpoint;
+
+        /**
+         * Whether the encoded prefix of this entry is the same as of another algorithm, rules out hash collisions.
+         */
+        private boolean matches(@Nonnull byte[] encoded, int length) {
+            if (length != _length || encoded.length < length) return false;
+
+            for (int i = 0; i < length; i++) {
+                if (encoded[i] != _encoded[i]) return false;
+            }
+
+            return true;
+        }
+
+        private CachedCheckpoint(@Nonnull byte[] encoded, int length, @Nonnull LevelRun.Checkpoint checkpoint) {
+            _encoded = encoded;
+            _length = length;
+            _checkpoint = checkpoint;
+        }
+    }
+
+    private final Level _level;
+    private final int _stride;
+    private final long _maxSteps;
+    private final int _maxDepth;
+    private final Map<Key, CachedCheckpoint> _entries;
+
+    private long _hitCount = 0;
+    private long _missCount = 0;
+    private long _skippedSteps = 0;
+
+    /**
+     * Amount of evaluations that resumed from a checkpoint.
+     *
+     * @return      hit count
+     */
+    public synchronized long getHitCount() {
+        return _hitCount;
+    }
+
+    /**
+     * Amount of evaluations that ran from the start.
+     *
+     * @return      miss count
+     */
+    public synchronized long getMissCount() {
+        return _missCount;
+    }
+
+    /**
+     * Amount of steps not executed thanks to resuming from checkpoints.
+     *
+     * @return      skipped steps
+     */
+    public synchronized long getSkippedSteps() {
+        return _skippedSteps;
+    }
+
+    private static int encodeGroup(@Nonnull RobotAlgo.Group group, @Nonnull byte[] encoded, int pos) {
+        for (int i = 0; i < group.size(); i++) {
+            encoded[pos++] = (byte) group.getType(i).ordinal();
+        }
+
+        return pos;
+    }
+
+    private synchronized LevelRun.Checkpoint lookup(@Nonnull long[] hashes, @Nonnull byte[] encoded, int functionsLength) {
+        for (int k = hashes.length - 1; k >= 0; k--) {
+            int length = functionsLength + (k + 1) * _stride;
+            CachedCheckpoint entry = _entries.get(new Key(hashes[k], length));
+
+            if (entry != null && entry.matches(encoded, length)) {
+                _hitCount++;
+                _skippedSteps += entry._checkpoint.getSteps();
+
+                return entry._checkpoint;
+            }
+        }
+
+        _missCount++;
+
+        return null;
+    }
+
+    private synchronized void store(long hash, @Nonnull byte[] encoded, int length, @Nonnull LevelRun.Checkpoint checkpoint) {
+        _entries.put(new Key(hash, length), new CachedCheckpoint(encoded, length, checkpoint));
+    }
+
+    /**
+     * Runs an algorithm, resuming from the checkpoint of the longest cached main group prefix and caching
+     * checkpoints for the prefixes of this algorithm.
+     *
+     * @param algo      algorithm to run
+     * @return          outcome of the run, the same as of a run from the start
+     */
+    @Nonnull
+    public LevelEvaluator.Evaluation evaluate(@Nonnull RobotAlgo algo) {
+        RobotProgram program = RobotProgram.compile(algo);
+
+        if (!program.isTerminating()) {
+            LevelRun run = new LevelRun(_level, program);
+
+            run.exec(_maxSteps, _maxDepth);
+
+            return new LevelEvaluator.Evaluation(algo, run);
+        }
+
+        int functionsLength = algo.getF1Group().size() + algo.getF2Group().size() + 2;
+        byte[] encoded = new byte[functionsLength + algo.getMainGroup().size()];
+
+        int pos = encodeGroup(algo.getF1Group(), encoded, 0);
+
+        encoded[pos++] = SEPARATOR;
+        pos = encodeGroup(algo.getF2Group(), encoded, pos);
+        encoded[pos++] = SEPARATOR;
+        encodeGroup(algo.getMainGroup(), encoded, pos);
+
+        // FNV-1a of each prefix ending at a checkpoint
+        long[] hashes = new long[algo.getMainGroup().size() / _stride];
+        long hash = 0xCBF29CE484222325L;
+
+        for (int i = 0, k = 0; k < hashes.length; i++) {
+            hash = (hash ^ encoded[i]) * 0x100000001B3L;
+
+            if (i + 1 == functionsLength + (k + 1) * _stride) hashes[k++] = hash;
+        }
+
+        LevelRun.Checkpoint checkpoint = lookup(hashes, encoded, functionsLength);
+        LevelRun run = new LevelRun(_level, program, LevelRun.ActionHandler.NONE, checkpoint);
+        boolean paused = true;
+
+        for (int k = checkpoint != null ? checkpoint.getMainIndex() / _stride : 0; k < hashes.length && paused; k++) {
+            int mainIndex = (k + 1) * _stride;
+
+            paused = run.advance(mainIndex, _maxSteps, _maxDepth);
+
+            if (paused) store(hashes[k], encoded, functionsLength + mainIndex, run.checkpoint());
+        }
+
+        if (paused) run.exec(_maxSteps, _maxDepth);
+
+        return new LevelEvaluator.Evaluation(algo, run);
+    }
+
+    /**
+     * Creates an empty cache without step budget.
+     *
+     * @param level         level to run on
+     * @param capacity      maximum amount of cached checkpoints
+     * @param stride        amount of main group actions between checkpoints
+     */
+    public PrefixCache(@Nonnull Level level, int capacity, int stride) {
+        this(level, capacity, stride, LevelRun.UNLIMITED_STEPS, LevelRun.DEFAULT_MAX_DEPTH);
+    }
+
+    /**
+     * Creates an empty cache.
+     *
+     * @param level         level to run on
+     * @param capacity      maximum amount of cached checkpoints
+     * @param stride        amount of main group actions between checkpoints
+     * @param maxSteps      step budget of each run, see {@link LevelRun#exec(long, int)}
+     * @param maxDepth      maximum call depth of each run, see {@link LevelRun#exec(long, int)}
+     */
+    public PrefixCache(@Nonnull Level level, int capacity, int stride, long maxSteps, int maxDepth) {
+        if (capacity <= 0) throw new IllegalArgumentException("invalid capacity " + capacity);
+        if (stride <= 0) throw new IllegalArgumentException("invalid stride " + stride);
+
+        _level = level;
+        _stride = stride;
+        _maxSteps = maxSteps;
+        _maxDepth = maxDepth;
+        _entries = new LinkedHashMap<Key, CachedCheckpoint>(16, 0.75F, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, CachedCheckpoint> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+}
@@ -1,26 +1,93 @@
 package core;
 
 import javax.annotation.Nonnull;
-import java.util.HashMap;
-import java.util.Map;
+import javax.annotation.Nullable;
 
+/**
+ * A robot action. There is exactly one instance per {@link Type}, obtained by {@link #of(Type)}, so actions can be
+ * compared by identity and algorithms do not hold an object per action.
+ */
 public class RobotAction {
-    private final static Map<String, Type> _typesMap = new HashMap<>();
-
     /**
      * available robot actions
      */
     public enum Type {
-        ROTATE_LEFT("l"),
-        ROTATE_RIGHT("r"),
-        MOVE("m"),
-        JUMP("j"),
-        SWITCH("s"),
-        F1("1"),
-        F2("2");
-
-        Type(@Nonnull String s) {
-            _typesMap.put(s, this);
+        ROTATE_LEFT('l'),
+        ROTATE_RIGHT('r'),
+        MOVE('m'),
+        JUMP('j'),
+        SWITCH('s'),
+        F1('1'),
+        F2('2');
+
+        /**
+         * types indexed by their key character
+         */
+        private final static Type[] BY_KEY = new Type[128];
+        /**
+         * types indexed by ordinal, to resolve ordinals without cloning {@link #values()}
+         */
+        private final static Type[] BY_ORDINAL = values();
+
+        static {
+            for (Type type : BY_ORDINAL) {
+                BY_KEY[type._key] = type;
+            }
+        }
+
+        private final char _key;
+
+        /**
+         * Accessor method for the character denoting this type in algorithm files.
+         *
+         * @return      key character
+         */
+        public char getKey() {
+            return _key;
+        }
+
+        /**
+         * Looks up the type denoted by a key character.
+         *
+         * @param key       key character, see {@link #getKey()}
+         * @return          type, null if <code>key</code> does not denote a type
+         */
+        @Nullable
+        public static Type forKey(int key) {
+            return key >= 0 && key < BY_KEY.length ? BY_KEY[key] : null;
+        }
+
+        /**
+         * Looks up a type by ordinal.
+         *
+         * @param ordinal       ordinal, see {@link #ordinal()}
+         * @return              type
+         * @throws IndexOutOfBoundsException    there is no type with this ordinal
+         */
+        @Nonnull
+        public static Type forOrdinal(int ordinal) {
+            return BY_ORDINAL[ordinal];
+        }
+
+        /**
+         * Amount of types, all ordinals are below.
+         *
+         * @return      type count
+         */
+        public static int count() {
+            return BY_ORDINAL.length;
+        }
+
+        Type(char key) {
+            _key = key;
+        }
+    }
+
+    private final static RobotAction[] INSTANCES = new RobotAction[Type.count()];
+
+    static {
+        for (int i = 0; i < INSTANCES.length; i++) {
+            INSTANCES[i] = new RobotAction(Type.forOrdinal(i));
         }
     }
 
@@ -37,24 +104,33 @@ public class RobotAction {
     }
 
     /**
+     * Canonical action of a type.
      *
-     *
-     * @param type
+     * @param type      action type
+     * @return          shared action instance
      */
-    public RobotAction(@Nonnull Type type) {
-        _type = type;
+    @Nonnull
+    public static RobotAction of(@Nonnull Type type) {
+        return INSTANCES[type.ordinal()];
     }
 
     /**
-     * Creates a robot action from given string (refers to the keys in {@link Type})
+     * Canonical action denoted by a string (refers to the keys in {@link Type}).
      *
-     * @param typeS
+     * @param typeS     single key character
+     * @return          shared action instance
+     * @throws IllegalArgumentException     <code>typeS</code> does not denote a type
      */
-    public RobotAction(@Nonnull String typeS) {
-        Type.values(); // dirty hack to force initialization of types to be put in the map
+    @Nonnull
+    public static RobotAction of(@Nonnull String typeS) {
+        Type type = typeS.length() == 1 ? Type.forKey(typeS.charAt(0)) : null;
 
-        if (!_typesMap.containsKey(typeS)) throw new IllegalArgumentException("invalid type " + typeS);
+        if (type == null) throw new IllegalArgumentException("invalid type " + typeS);
 
-        _type = _typesMap.get(typeS);
+        return of(type);
+    }
+
+    private RobotAction(@Nonnull Type type) {
+        _type = type;
     }
 }
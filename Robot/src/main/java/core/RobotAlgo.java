@@ -2,27 +2,120 @@ package core;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
-import java.io.*;
-import java.nio.charset.StandardCharsets;
-import java.util.ArrayList;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.AbstractList;
+import java.util.Arrays;
 import java.util.List;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.RandomAccess;
 
 public class RobotAlgo {
     /**
-     * positional container for robot actions
+     * positional container for robot actions, stored as one {@link RobotAction.Type} ordinal byte per action
      */
     public class Group {
-        private final List<RobotAction> _actions = new ArrayList<>();
+        private byte[] _ordinals = EMPTY;
+        private int _size = 0;
+
+        /**
+         * list view of the actions, supports adding, replacing and removing
+         */
+        private final List<RobotAction> _actions = new ActionList();
+
+        private class ActionList extends AbstractList<RobotAction> implements RandomAccess {
+            @Override
+            public RobotAction get(int index) {
+                return RobotAction.of(getType(index));
+            }
+
+            @Override
+            public int size() {
+                return _size;
+            }
+
+            @Override
+            public RobotAction set(int index, @Nonnull RobotAction action) {
+                RobotAction prev = get(index);
+
+                _ordinals[index] = (byte) action.getType().ordinal();
+
+                return prev;
+            }
+
+            @Override
+            public void add(int index, @Nonnull RobotAction action) {
+                if (index < 0 || index > _size) throw new IndexOutOfBoundsException("index " + index + ", size " + _size);
+
+                ensureCapacity(_size + 1);
+
+                System.arraycopy(_ordinals, index, _ordinals, index + 1, _size - index);
+
+                _ordinals[index] = (byte) action.getType().ordinal();
+                _size++;
+                modCount++;
+            }
+
+            @Override
+            public RobotAction remove(int index) {
+                RobotAction prev = get(index);
 
+                System.arraycopy(_ordinals, index + 1, _ordinals, index, _size - index - 1);
+
+                _size--;
+                modCount++;
+
+                return prev;
+            }
+
+            @Override
+            public void clear() {
+                _size = 0;
+                modCount++;
+            }
+        }
+
+        /**
+         * Modifiable view of the actions. The elements are the canonical instances of {@link RobotAction#of(RobotAction.Type)}.
+         *
+         * @return      actions in order
+         */
         @Nonnull
         public List<RobotAction> getActions() {
             return _actions;
         }
 
-        private void addAction(@Nonnull RobotAction action) {
-            _actions.add(action);
+        /**
+         * Amount of actions.
+         *
+         * @return      size
+         */
+        public int size() {
+            return _size;
+        }
+
+        /**
+         * Type of the action at an index, without going through {@link RobotAction} objects.
+         *
+         * @param index     index
+         * @return          action type
+         */
+        @Nonnull
+        public RobotAction.Type getType(int index) {
+            if (index < 0 || index >= _size) throw new IndexOutOfBoundsException("index " + index + ", size " + _size);
+
+            return RobotAction.Type.forOrdinal(_ordinals[index]);
+        }
+
+        private void ensureCapacity(int capacity) {
+            if (capacity > _ordinals.length) _ordinals = Arrays.copyOf(_ordinals, Math.max(capacity, Math.max(8, _ordinals.length * 2)));
+        }
+
+        void addAction(@Nonnull RobotAction.Type type) {
+            ensureCapacity(_size + 1);
+
+            _ordinals[_size++] = (byte) type.ordinal();
         }
 
         private Group() {
@@ -30,6 +123,8 @@ public class RobotAlgo {
         }
     }
 
+    private final static byte[] EMPTY = new byte[0];
+
     private final Group _mainGroup = new Group();
     private final Group _f1Group = new Group();
     private final Group _f2Group = new Group();
@@ -81,20 +176,21 @@ public class RobotAlgo {
      */
     public RobotAlgo(@Nonnull String[] mainGroupActions, @Nonnull String[] f1GroupActions, @Nonnull String[] f2GroupActions) {
         for (String actionS : mainGroupActions) {
-            _mainGroup.addAction(new RobotAction(actionS));
+            _mainGroup.addAction(RobotAction.of(actionS).getType());
         }
         for (String actionS : f1GroupActions) {
-            _f1Group.addAction(new RobotAction(actionS));
+            _f1Group.addAction(RobotAction.of(actionS).getType());
         }
         for (String actionS : f2GroupActions) {
-            _f2Group.addAction(new RobotAction(actionS));
+            _f2Group.addAction(RobotAction.of(actionS).getType());
         }
     }
 
     private String _associatedLevelName;
 
     /**
-     * The name for a level as and only if read from the file presented to {@link RobotAlgo#RobotAlgo(File)}
+     * The name for a level as and only if read from the file presented to {@link RobotAlgo#RobotAlgo(File)} or by a
+     * {@link RobotAlgoParser}
      *
      * @return      level name, may be null
      */
@@ -103,59 +199,19 @@ public class RobotAlgo {
         return _associatedLevelName;
     }
 
+    void setAssociatedLevelName(@Nullable String name) {
+        _associatedLevelName = name;
+    }
+
     /**
-     * Creates a robot algorithm from a given text file.
+     * Creates a robot algorithm from a given text file. The first line names the associated level, each further line
+     * lists the actions of a group as in <code>main: l m r 1</code>, see {@link RobotAlgoParser}.
      * 
      * @param file              file to read from
      * @throws IOException      an IOExeception occurred when trying to handle <code>file</code>
+     * @throws RobotAlgoFormatException     the file content is malformed
      */
     public RobotAlgo(@Nonnull File file) throws IOException {
-        BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8));
-
-        String line = reader.readLine();
-
-        _associatedLevelName = line;
-
-        while ((line = reader.readLine()) != null) {
-            Pattern pattern = Pattern.compile("(\\w+):([\\w\\s]+)$");
-
-            Matcher matcher = pattern.matcher(line);
-
-            if (matcher.find()) {
-                String groupS = matcher.group(1);
-                String actionLine = matcher.group(2);
-
-                Group group = null;
-
-                switch (groupS) {
-                    case "main":
-                        group = _mainGroup;
-
-                        break;
-                    case "f1":
-                        group = _f1Group;
-
-                        break;
-                    case "f2":
-                        group = _f2Group;
-
-                        break;
-                }
-
-                if (group == null) throw new IllegalArgumentException("invalid group " + groupS);
-
-                actionLine = actionLine.trim();
-
-                actionLine = actionLine.replaceAll("\\s+", ";");
-
-                String[] actionsS = actionLine.split(";");
-
-                for (String actionS : actionsS) {
-                    group.addAction(new RobotAction(actionS));
-                }
-            }
-        }
-
-        reader.close();
+        new RobotAlgoParser(ByteBuffer.wrap(Files.readAllBytes(file.toPath()))).readSingle(this);
     }
 }
@@ -0,0 +1,147 @@
+package core;
+
+import javax.annotation.Nonnull;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Archive of robot algorithms concatenated in a single text file, in the format read by {@link RobotAlgoParser}.
+ * The file is memory-mapped and the algorithms are parsed lazily while iterating, so neither the file content nor
+ * the whole corpus of algorithms has to be held on the heap. Files exceeding the size of a single mapping are mapped
+ * in consecutive windows, which are cut at record boundaries.
+ *
+ * Iteration throws {@link UncheckedIOException} if the file cannot be read and {@link RobotAlgoFormatException} for
+ * malformed records, whose line numbers are relative to the window the record was read from.
+ */
+public class RobotAlgoArchive implements Iterable<RobotAlgo> {
+    /**
+     * maximum size of a single mapping
+     */
+    private final static long MAX_WINDOW_SIZE = Integer.MAX_VALUE;
+
+    private final File _file;
+
+    /**
+     * Accessor method for the file of the archive.
+     *
+     * @return      file
+     */
+    @Nonnull
+    public File getFile() {
+        return _file;
+    }
+
+    private final long _windowSize;
+
+    private class ArchiveIterator implements Iterator<RobotAlgo> {
+        private long _offset = 0;
+        private long _fileSize = -1;
+        private RobotAlgoParser _parser = null;
+
+        /**
+         * Maps the window starting at the current offset and advances the offset past the records it holds.
+         */
+        private void mapWindow() throws IOException {
+            try (FileChannel channel = FileChannel.open(_file.toPath(), StandardOpenOption.READ)) {
+                if (_fileSize < 0) _fileSize = channel.size();
+
+                long size = Math.min(_fileSize - _offset, _windowSize);
+
+                // a mapping stays valid after its channel is closed
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, _offset, size);
+
+                if (_offset + size < _fileSize) {
+                    int cut = new RobotAlgoParser(buffer).lastRecordStart();
+
+                    if (cut < 0) throw new IOException(_file + ": record at offset " + _offset + " exceeds window size " + _windowSize);
+
+                    buffer.limit(cut);
+                    size = cut;
+                }
+
+                _parser = new RobotAlgoParser(buffer);
+                _offset += size;
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            try {
+                while (_parser == null || !_parser.hasNext()) {
+                    if (_fileSize >= 0 && _offset >= _fileSize) return false;
+
+                    mapWindow();
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+
+            return true;
+        }
+
+        @Override
+        @Nonnull
+        public RobotAlgo next() {
+            if (!hasNext()) throw new NoSuchElementException();
+
+            return _parser.next();
+        }
+    }
+
+    /**
+     * Iterates the algorithms of the archive in file order. The file is opened anew by every iterator, there are no
+     * resources to release.
+     *
+     * @return      iterator parsing the archive lazily
+     */
+    @Override
+    @Nonnull
+    public Iterator<RobotAlgo> iterator() {
+        return new ArchiveIterator();
+    }
+
+    /**
+     * Streams the algorithms of the archive in file order, e.g. to feed them into
+     * {@link LevelEvaluator#evaluate(Level, RobotAlgo)}. Parsing is sequential, a parallel stream hands the parsed
+     * algorithms out in batches.
+     *
+     * @return      stream parsing the archive lazily
+     */
+    @Nonnull
+    public Stream<RobotAlgo> stream() {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator(), Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+
+    /**
+     * Creates an archive over a file, nothing is read yet.
+     *
+     * @param file      text file of concatenated algorithms
+     */
+    public RobotAlgoArchive(@Nonnull File file) {
+        this(file, MAX_WINDOW_SIZE);
+    }
+
+    /**
+     * Creates an archive over a file that is mapped in windows of limited size, nothing is read yet. Each record,
+     * followed by the header line of the next one, has to fit into a window.
+     *
+     * @param file          text file of concatenated algorithms
+     * @param windowSize    maximum amount of bytes mapped at once
+     */
+    public RobotAlgoArchive(@Nonnull File file, long windowSize) {
+        if (windowSize <= 0 || windowSize > MAX_WINDOW_SIZE) throw new IllegalArgumentException("invalid window size " + windowSize);
+
+        _file = file;
+        _windowSize = windowSize;
+    }
+}
@@ -0,0 +1,44 @@
+package core;
+
+/**
+ * Malformed robot algorithm text, carrying the position of the offending character.
+ */
+public class RobotAlgoFormatException extends IllegalArgumentException {
+    private final static long serialVersionUID = 1L;
+
+    private final int _line;
+
+    /**
+     * Accessor method for the line of the error.
+     *
+     * @return      line, starting at 1
+     */
+    public int getLine() {
+        return _line;
+    }
+
+    private final int _column;
+
+    /**
+     * Accessor method for the column of the error.
+     *
+     * @return      column, starting at 1
+     */
+    public int getColumn() {
+        return _column;
+    }
+
+    /**
+     * Constructs the exception.
+     *
+     * @param message   description of the error
+     * @param line      line of the error, starting at 1
+     * @param column    column of the error, starting at 1
+     */
+    public RobotAlgoFormatException(String message, int line, int column) {
+        super(line + ":" + column + ": " + message);
+
+        _line = line;
+        _column = column;
+    }
+}
@@ -0,0 +1,307 @@
+package core;
+
+import javax.annotation.Nonnull;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Single-pass tokenizer for robot algorithms in text form:
+ * <pre>
+ * Level 2
+ * main: l m r m 1 2
+ * f1: m m m
+ * f2: r m s
+ * </pre>
+ * A record consists of a header line naming the associated level followed by group lines (<code>main</code>,
+ * <code>f1</code>, <code>f2</code>), whose actions are single characters (see {@link RobotAction.Type#getKey()})
+ * separated by whitespace. Blank lines are ignored. Several records may follow each other, a line that is not a
+ * group line starts the next record. Only a group name directly followed by a colon makes a group line, so level names
+ * may contain colons.
+ *
+ * Input is either a {@link CharSequence} or the bytes between position and limit of a {@link ByteBuffer}. Byte input
+ * is expected to be UTF-8, of which only level names may use more than ASCII. The buffer position is not changed.
+ */
+public class RobotAlgoParser implements Iterator<RobotAlgo> {
+    private final CharSequence _chars;
+    private final ByteBuffer _bytes;
+    private final int _end;
+
+    private int _pos;
+    private int _line = 1;
+    private int _lineStart;
+
+    private int at(int i) {
+        return _bytes != null ? _bytes.get(i) & 0xFF : _chars.charAt(i);
+    }
+
+    @Nonnull
+    private String text(int start, int end) {
+        if (_bytes == null) return _chars.subSequence(start, end).toString();
+
+        ByteBuffer slice = _bytes.duplicate();
+
+        slice.limit(end);
+        slice.position(start);
+
+        return StandardCharsets.UTF_8.decode(slice).toString();
+    }
+
+    /**
+     * Offset of the next character to be read, in chars or bytes relative to the start of the buffer.
+     *
+     * @return      current position
+     */
+    public int getPosition() {
+        return _pos;
+    }
+
+    @Nonnull
+    private RobotAlgoFormatException error(@Nonnull String message, int pos) {
+        return new RobotAlgoFormatException(message, _line, pos - _lineStart + 1);
+    }
+
+    /**
+     * whitespace within a line
+     */
+    private static boolean isBlank(int c) {
+        return c == ' ' || c == '\t' || c == '\r';
+    }
+
+    private static boolean isWordChar(int c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '_';
+    }
+
+    private int skipBlanks(int i) {
+        while (i < _end && isBlank(at(i))) i++;
+
+        return i;
+    }
+
+    private int tokenEnd(int i) {
+        while (i < _end && !isBlank(at(i)) && at(i) != '\n') i++;
+
+        return i;
+    }
+
+    private void nextLine(int lineEnd) {
+        _pos = lineEnd < _end ? lineEnd + 1 : _end;
+        _line++;
+        _lineStart = _pos;
+    }
+
+    /**
+     * Advances past blank lines.
+     *
+     * @return      false if the input is exhausted
+     */
+    private boolean skipBlankLines() {
+        while (_pos < _end) {
+            int i = skipBlanks(_pos);
+
+            if (i < _end && at(i) != '\n') return true;
+
+            nextLine(i);
+        }
+
+        return false;
+    }
+
+    private boolean matches(int start, int end, @Nonnull String s) {
+        if (end - start != s.length()) return false;
+
+        for (int i = 0; i < s.length(); i++) {
+            if (at(start + i) != s.charAt(i)) return false;
+        }
+
+        return true;
+    }
+
+    private boolean isGroupName(int start, int end) {
+        return matches(start, end, "main") || matches(start, end, "f1") || matches(start, end, "f2");
+    }
+
+    @Nonnull
+    private String readHeader() {
+        int lineEnd = _pos;
+
+        while (lineEnd < _end && at(lineEnd) != '\n') lineEnd++;
+
+        int end = lineEnd;
+
+        if (end > _pos && at(end - 1) == '\r') end--;
+
+        String name = text(_pos, end);
+
+        nextLine(lineEnd);
+
+        return name;
+    }
+
+    /**
+     * Reads the current line as group line.
+     *
+     * @return      false if the line is not a group line, nothing was consumed then
+     */
+    private boolean readGroupLine(@Nonnull RobotAlgo algo) {
+        int nameStart = skipBlanks(_pos);
+        int i = nameStart;
+
+        while (i < _end && isWordChar(at(i))) i++;
+
+        if (i >= _end || at(i) != ':' || !isGroupName(nameStart, i)) return false;
+
+        RobotAlgo.Group group;
+
+        if (matches(nameStart, i, "main")) group = algo.getMainGroup();
+        else if (matches(nameStart, i, "f1")) group = algo.getF1Group();
+        else group = algo.getF2Group();
+
+        i++;
+
+        while (true) {
+            i = skipBlanks(i);
+
+            if (i >= _end || at(i) == '\n') break;
+
+            int c = at(i);
+            RobotAction.Type type = RobotAction.Type.forKey(c);
+
+            if (type == null || (i + 1 < _end && !isBlank(at(i + 1)) && at(i + 1) != '\n')) throw error("invalid type " + text(i, tokenEnd(i)), i);
+
+            group.addAction(type);
+
+            i++;
+        }
+
+        nextLine(i);
+
+        return true;
+    }
+
+    /**
+     * Finds the start of the last record whose header line is complete, i.e. terminated within the input. Used to
+     * cut input that is read in pieces at a record boundary.
+     *
+     * @return      position of the last complete header line after the current position, -1 if there is none
+     */
+    int lastRecordStart() {
+        int lineEnd = _end;
+
+        // the last line might be incomplete, only lines terminated by a line break are considered
+        while (lineEnd > _pos && at(lineEnd - 1) != '\n') lineEnd--;
+
+        while (lineEnd > _pos) {
+            int lineStart = lineEnd - 1;
+
+            while (lineStart > _pos && at(lineStart - 1) != '\n') lineStart--;
+
+            int i = skipBlanks(lineStart);
+
+            if (i < lineEnd - 1) {
+                int nameStart = i;
+
+                while (i < lineEnd && isWordChar(at(i))) i++;
+
+                boolean groupLine = at(i) == ':' && isGroupName(nameStart, i);
+
+                if (!groupLine) return lineStart > _pos ? lineStart : -1;
+            }
+
+            lineEnd = lineStart;
+        }
+
+        return -1;
+    }
+
+    private void read(@Nonnull RobotAlgo algo) {
+        algo.setAssociatedLevelName(readHeader());
+
+        while (skipBlankLines() && readGroupLine(algo)) {
+            // next group line
+        }
+    }
+
+    /**
+     * Reads the whole input as a single record into <code>algo</code>. An empty input leaves <code>algo</code>
+     * untouched.
+     *
+     * @throws RobotAlgoFormatException     the input is malformed or holds more than one record
+     */
+    void readSingle(@Nonnull RobotAlgo algo) {
+        if (!skipBlankLines()) return;
+
+        read(algo);
+
+        if (skipBlankLines()) throw error("expected group (main, f1, f2)", skipBlanks(_pos));
+    }
+
+    /**
+     * Whether there is another record.
+     *
+     * @return      true if non-blank input is left
+     */
+    @Override
+    public boolean hasNext() {
+        return skipBlankLines();
+    }
+
+    /**
+     * Reads the next record.
+     *
+     * @return      algorithm of the record
+     * @throws RobotAlgoFormatException     the record is malformed
+     */
+    @Override
+    @Nonnull
+    public RobotAlgo next() {
+        if (!skipBlankLines()) throw new NoSuchElementException();
+
+        RobotAlgo algo = new RobotAlgo();
+
+        read(algo);
+
+        return algo;
+    }
+
+    /**
+     * Parses a single algorithm.
+     *
+     * @param text      algorithm in text form
+     * @return          algorithm
+     * @throws RobotAlgoFormatException     the text is malformed or holds more than one record
+     */
+    @Nonnull
+    public static RobotAlgo parse(@Nonnull CharSequence text) {
+        RobotAlgo algo = new RobotAlgo();
+
+        new RobotAlgoParser(text).readSingle(algo);
+
+        return algo;
+    }
+
+    /**
+     * Creates a parser over text.
+     *
+     * @param text      records in text form
+     */
+    public RobotAlgoParser(@Nonnull CharSequence text) {
+        _chars = text;
+        _bytes = null;
+        _end = text.length();
+    }
+
+    /**
+     * Creates a parser over the remaining bytes of a buffer, which must not be modified while parsing.
+     *
+     * @param bytes     records in UTF-8
+     */
+    public RobotAlgoParser(@Nonnull ByteBuffer bytes) {
+        _chars = null;
+        _bytes = bytes;
+        _pos = bytes.position();
+        _lineStart = _pos;
+        _end = bytes.limit();
+    }
+}
@@ -0,0 +1,366 @@
+package core;
+
+import javax.annotation.Nonnull;
+import java.util.Arrays;
+
+/**
+ * A {@link RobotAlgo} lowered to a flat instruction stream. Each instruction is a single int carrying the opcode in
+ * its lowest {@link #OP_BITS} bits and an operand (call target) above. The main group starts at address 0 and ends
+ * with {@link #OP_HALT}, the function groups follow, each ending with {@link #OP_RETURN}.
+ *
+ * Next to this exact form, a fused form of the same layout is kept for runs that report no events: maximal runs of
+ * moves become a single {@link #OP_MOVE_N} and maximal runs of rotations a single {@link #OP_ROTATE_N} turning by
+ * their sum mod 4, so cancelling pairs like <code>l r</code> cost nothing but their step count. Fused instructions
+ * still account for every action they stand for.
+ */
+public class RobotProgram {
+    public final static int OP_HALT = 0;
+    public final static int OP_ROTATE_LEFT = 1;
+    public final static int OP_ROTATE_RIGHT = 2;
+    public final static int OP_MOVE = 3;
+    public final static int OP_JUMP = 4;
+    public final static int OP_SWITCH = 5;
+    public final static int OP_CALL = 6;
+    public final static int OP_RETURN = 7;
+    /**
+     * fused form only, operand n: moves n times, stopping early where the robot bumps or stands at the border
+     */
+    public final static int OP_MOVE_N = 8;
+    /**
+     * fused form only, operand <code>n << 2 | turns</code>: n rotations amounting to turns counterclockwise quarter
+     * turns
+     */
+    public final static int OP_ROTATE_N = 9;
+
+    public final static int OP_BITS = 8;
+    public final static int OP_MASK = (1 << OP_BITS) - 1;
+
+    private final int[] _code;
+
+    /**
+     * Direct access to the instruction stream for the interpreter, must not be modified.
+     */
+    @Nonnull
+    int[] code() {
+        return _code;
+    }
+
+    /**
+     * Accessor method for the instruction stream.
+     *
+     * @return      copy of the instructions
+     */
+    @Nonnull
+    public int[] getCode() {
+        return _code.clone();
+    }
+
+    /**
+     * maximum amount of actions fused into one instruction, bounded by the operand of {@link #OP_ROTATE_N}
+     */
+    private final static int MAX_FUSED = (1 << (32 - OP_BITS - 2)) - 1;
+
+    private final int[] _fusedCode;
+
+    /**
+     * Direct access to the fused instruction stream for the interpreter, must not be modified.
+     */
+    @Nonnull
+    int[] fusedCode() {
+        return _fusedCode;
+    }
+
+    /**
+     * Accessor method for the fused instruction stream.
+     *
+     * @return      copy of the fused instructions
+     */
+    @Nonnull
+    public int[] getFusedCode() {
+        return _fusedCode.clone();
+    }
+
+    /**
+     * address in the exact form of the first action of each fused instruction
+     */
+    private final int[] _fusedOrigins;
+
+    /**
+     * Address in the exact form of the first action a fused instruction stands for.
+     *
+     * @param fusedAddress      address in the fused form
+     * @return                  address in the exact form
+     */
+    int origin(int fusedAddress) {
+        return _fusedOrigins[fusedAddress];
+    }
+
+    /**
+     * fused address of each exact address, -1 within a fused run
+     */
+    private final int[] _fusedAddresses;
+
+    /**
+     * Address in the fused form corresponding to an address of the exact form.
+     *
+     * @param address       address in the exact form
+     * @return              address in the fused form, -1 if the exact address lies within a fused run
+     */
+    int fusedAddress(int address) {
+        return _fusedAddresses[address];
+    }
+
+    /**
+     * Amount of actions a fused instruction stands for.
+     *
+     * @param insn      instruction of the fused form
+     * @return          amount of steps it accounts for, 1 for the unfused opcodes
+     */
+    public static int actionCount(int insn) {
+        switch (opcode(insn)) {
+            case OP_MOVE_N:
+                return operand(insn);
+            case OP_ROTATE_N:
+                return operand(insn) >>> 2;
+            default:
+                return 1;
+        }
+    }
+
+    private final int _f1Address;
+
+    /**
+     * Amount of actions of the main group, which occupy addresses 0 up to exclusively this length.
+     *
+     * @return      main group length
+     */
+    public int getMainLength() {
+        return _f1Address - 1;
+    }
+
+    /**
+     * Accessor method for the entry point of function 1.
+     *
+     * @return      address of the first instruction of function 1
+     */
+    public int getF1Address() {
+        return _f1Address;
+    }
+
+    private final int _f2Address;
+
+    /**
+     * Accessor method for the entry point of function 2.
+     *
+     * @return      address of the first instruction of function 2
+     */
+    public int getF2Address() {
+        return _f2Address;
+    }
+
+    private final boolean _terminating;
+
+    /**
+     * Whether the program halts. The actions are unconditional, so a program runs forever exactly if a function
+     * reachable from the main group (indirectly) calls itself.
+     *
+     * @return      false if execution provably never ends
+     */
+    public boolean isTerminating() {
+        return _terminating;
+    }
+
+    private final int _maxDepth;
+
+    /**
+     * Deepest nesting of function calls a run of this program reaches.
+     *
+     * @return      maximum call depth, {@link Integer#MAX_VALUE} if the program is not terminating
+     */
+    public int getMaxDepth() {
+        return _maxDepth;
+    }
+
+    /**
+     * Opcode of an instruction.
+     *
+     * @param insn      instruction
+     * @return          one of the OP_ constants
+     */
+    public static int opcode(int insn) {
+        return insn & OP_MASK;
+    }
+
+    /**
+     * Operand of an instruction.
+     *
+     * @param insn      instruction
+     * @return          operand, the target address for {@link #OP_CALL}
+     */
+    public static int operand(int insn) {
+        return insn >>> OP_BITS;
+    }
+
+    private static int insn(int opcode, int operand) {
+        return opcode | (operand << OP_BITS);
+    }
+
+    /**
+     * opcodes of the non-call actions indexed by {@link RobotAction.Type} ordinal
+     */
+    private final static int[] OPCODES = new int[RobotAction.Type.count()];
+
+    static {
+        OPCODES[RobotAction.Type.ROTATE_LEFT.ordinal()] = OP_ROTATE_LEFT;
+        OPCODES[RobotAction.Type.ROTATE_RIGHT.ordinal()] = OP_ROTATE_RIGHT;
+        OPCODES[RobotAction.Type.MOVE.ordinal()] = OP_MOVE;
+        OPCODES[RobotAction.Type.JUMP.ordinal()] = OP_JUMP;
+        OPCODES[RobotAction.Type.SWITCH.ordinal()] = OP_SWITCH;
+    }
+
+    private static int emit(@Nonnull int[] code, int pc, @Nonnull RobotAlgo.Group group, int terminator, int f1Address, int f2Address) {
+        for (int i = 0; i < group.size(); i++) {
+            RobotAction.Type type = group.getType(i);
+
+            if (type == RobotAction.Type.F1) code[pc++] = insn(OP_CALL, f1Address);
+            else if (type == RobotAction.Type.F2) code[pc++] = insn(OP_CALL, f2Address);
+            else code[pc++] = OPCODES[type.ordinal()];
+        }
+
+        code[pc++] = terminator;
+
+        return pc;
+    }
+
+    /**
+     * Lowers the given algorithm. Later changes to the algorithm are not reflected by the program.
+     *
+     * @param algo      algorithm to compile
+     * @return          compiled program
+     */
+    @Nonnull
+    public static RobotProgram compile(@Nonnull RobotAlgo algo) {
+        int mainSize = algo.getMainGroup().size();
+        int f1Size = algo.getF1Group().size();
+        int f2Size = algo.getF2Group().size();
+
+        int f1Address = mainSize + 1;
+        int f2Address = f1Address + f1Size + 1;
+
+        int[] code = new int[f2Address + f2Size + 1];
+
+        int pc = emit(code, 0, algo.getMainGroup(), OP_HALT, f1Address, f2Address);
+
+        pc = emit(code, pc, algo.getF1Group(), OP_RETURN, f1Address, f2Address);
+
+        emit(code, pc, algo.getF2Group(), OP_RETURN, f1Address, f2Address);
+
+        return new RobotProgram(code, f1Address, f2Address);
+    }
+
+    private static final int UNVISITED = -1;
+    private static final int VISITING = -2;
+
+    /**
+     * Depth of the call tree below the group starting at <code>address</code>, memoized in <code>depths</code>
+     * (indexed 0 for main, 1 for f1, 2 for f2).
+     *
+     * @return      call depth, {@link Integer#MAX_VALUE} if a call cycle is reachable
+     */
+    private int callDepth(int group, int address, @Nonnull int[] depths) {
+        if (depths[group] == VISITING) return Integer.MAX_VALUE;
+        if (depths[group] != UNVISITED) return depths[group];
+
+        depths[group] = VISITING;
+
+        int depth = 0;
+
+        for (int pc = address; opcode(_code[pc]) != OP_RETURN && opcode(_code[pc]) != OP_HALT; pc++) {
+            if (opcode(_code[pc]) != OP_CALL) continue;
+
+            int target = operand(_code[pc]);
+            int calleeDepth = callDepth(target == _f1Address ? 1 : 2, target, depths);
+
+            if (calleeDepth == Integer.MAX_VALUE) {
+                depth = Integer.MAX_VALUE;
+
+                break;
+            }
+
+            depth = Math.max(depth, calleeDepth + 1);
+        }
+
+        depths[group] = depth;
+
+        return depth;
+    }
+
+    private static boolean isRotation(int opcode) {
+        return opcode == OP_ROTATE_LEFT || opcode == OP_ROTATE_RIGHT;
+    }
+
+    /**
+     * Builds the fused form, filling {@link #_fusedAddresses} and {@link #_fusedOrigins} on the way. Runs never span
+     * a group as each group ends with a terminator.
+     *
+     * @return      fused instructions, trimmed
+     */
+    @Nonnull
+    private int[] fuse(@Nonnull int[] origins) {
+        int[] fused = new int[_code.length];
+        int length = 0;
+
+        for (int pc = 0; pc < _code.length; ) {
+            int opcode = opcode(_code[pc]);
+            int end = pc + 1;
+
+            if (opcode == OP_MOVE) {
+                while (end < _code.length && end - pc < MAX_FUSED && opcode(_code[end]) == OP_MOVE) end++;
+            } else if (isRotation(opcode)) {
+                while (end < _code.length && end - pc < MAX_FUSED && isRotation(opcode(_code[end]))) end++;
+            }
+
+            int count = end - pc;
+
+            _fusedAddresses[pc] = length;
+            origins[length] = pc;
+
+            if (count == 1) {
+                fused[length++] = _code[pc];
+            } else if (opcode == OP_MOVE) {
+                fused[length++] = insn(OP_MOVE_N, count);
+            } else {
+                int turns = 0;
+
+                for (int i = pc; i < end; i++) turns += opcode(_code[i]) == OP_ROTATE_LEFT ? 1 : 3;
+
+                fused[length++] = insn(OP_ROTATE_N, count << 2 | turns & 3);
+            }
+
+            pc = end;
+        }
+
+        for (int i = 0; i < length; i++) {
+            if (opcode(fused[i]) == OP_CALL) fused[i] = insn(OP_CALL, _fusedAddresses[operand(fused[i])]);
+        }
+
+        return Arrays.copyOf(fused, length);
+    }
+
+    private RobotProgram(@Nonnull int[] code, int f1Address, int f2Address) {
+        _code = code;
+        _f1Address = f1Address;
+        _f2Address = f2Address;
+
+        _fusedAddresses = new int[code.length];
+        Arrays.fill(_fusedAddresses, -1);
+
+        int[] origins = new int[code.length];
+
+        _fusedCode = fuse(origins);
+        _fusedOrigins = Arrays.copyOf(origins, _fusedCode.length);
+
+        _maxDepth = callDepth(0, 0, new int[] {UNVISITED, UNVISITED, UNVISITED});
+        _terminating = _maxDepth != Integer.MAX_VALUE;
+    }
+}
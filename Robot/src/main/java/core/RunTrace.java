@@ -0,0 +1,205 @@
+package core;
+
+import javax.annotation.Nonnull;
+import java.util.Arrays;
+
+/**
+ * Recording of a finished run for playback. Frame 0 is the start state, frame i the state after the i-th action
+ * (function calls included, reported once the function returned), so there are {@link #getFrameCount()} = steps + 1
+ * frames. Each frame stores position and direction packed into an int, switch toggles are kept apart with the frame
+ * they happened in. As a toggle is its own inverse, the switch state of any frame is reached from the one of any
+ * other frame by applying the toggles in between, in either direction, see {@link #toggles(int, int, ToggleHandler)}.
+ */
+public class RunTrace {
+    private final Level _level;
+
+    public Level getLevel() {
+        return _level;
+    }
+
+    /**
+     * <code>tile << 2 | dir</code> per frame, tile being the row-major index
+     */
+    private final int[] _frames;
+
+    /**
+     * Amount of recorded states, one more than the steps of the run.
+     *
+     * @return      frame count
+     */
+    public int getFrameCount() {
+        return _frames.length;
+    }
+
+    public int getX(int frame) {
+        return (_frames[frame] >>> 2) % _level.getWidth();
+    }
+
+    public int getY(int frame) {
+        return (_frames[frame] >>> 2) / _level.getWidth();
+    }
+
+    public int getDir(int frame) {
+        return _frames[frame] & 3;
+    }
+
+    /**
+     * frames of the switch toggles, ascending
+     */
+    private final int[] _toggleFrames;
+    /**
+     * tile indexes of the switch toggles
+     */
+    private final int[] _toggleTiles;
+
+    public interface ToggleHandler {
+        /**
+         * Called for a switch that flips between two frames.
+         *
+         * @param x         x coordinate of the switch
+         * @param y         y coordinate of the switch
+         */
+        void toggle(int x, int y);
+    }
+
+    /**
+     * Index of the first toggle happening after the given frame.
+     */
+    private int toggleIndex(int frame) {
+        int index = Arrays.binarySearch(_toggleFrames, frame + 1);
+
+        if (index < 0) return -index - 1;
+
+        // several toggles may share a frame, find the first one
+        while (index > 0 && _toggleFrames[index - 1] == frame + 1) index--;
+
+        return index;
+    }
+
+    /**
+     * Reports the switch toggles separating two frames, so a view showing the switch state of one frame can be
+     * turned into the one of the other frame. Seeking backwards reports the toggles in reverse order.
+     *
+     * @param fromFrame     frame currently shown
+     * @param toFrame       frame to show
+     * @param handler       callback for each toggle
+     */
+    public void toggles(int fromFrame, int toFrame, @Nonnull ToggleHandler handler) {
+        int width = _level.getWidth();
+
+        if (fromFrame <= toFrame) {
+            for (int i = toggleIndex(fromFrame); i < _toggleFrames.length && _toggleFrames[i] <= toFrame; i++) {
+                handler.toggle(_toggleTiles[i] % width, _toggleTiles[i] / width);
+            }
+        } else {
+            for (int i = toggleIndex(fromFrame) - 1; i >= 0 && _toggleFrames[i] > toFrame; i--) {
+                handler.toggle(_toggleTiles[i] % width, _toggleTiles[i] / width);
+            }
+        }
+    }
+
+    private final LevelRun.Result _result;
+
+    /**
+     * Outcome of the recorded run.
+     *
+     * @return      result
+     */
+    @Nonnull
+    public LevelRun.Result getResult() {
+        return _result;
+    }
+
+    /**
+     * Collects the events of a run, see {@link #record(Level, RobotProgram, long, int)}.
+     */
+    private static class Recorder implements LevelRun.ActionHandler {
+        private final int _width;
+
+        private int[] _frames = new int[16];
+        private int _frameCount = 0;
+        private int[] _toggleFrames = new int[4];
+        private int[] _toggleTiles = new int[4];
+        private int _toggleCount = 0;
+
+        /**
+         * state since the last action
+         */
+        private int _tile;
+        private int _dir;
+
+        private void addFrame() {
+            if (_frameCount == _frames.length) _frames = Arrays.copyOf(_frames, _frames.length * 2);
+
+            _frames[_frameCount++] = _tile << 2 | _dir;
+        }
+
+        @Override
+        public void result(boolean success) {
+        }
+
+        @Override
+        public void action() {
+            addFrame();
+        }
+
+        @Override
+        public void turn(int newDir, int oldDir) {
+            _dir = newDir;
+        }
+
+        @Override
+        public void move(int newX, int newY, int oldX, int oldY) {
+            _tile = newY * _width + newX;
+        }
+
+        @Override
+        public void useSwitch(int x, int y) {
+            if (_toggleCount == _toggleFrames.length) {
+                _toggleFrames = Arrays.copyOf(_toggleFrames, _toggleCount * 2);
+                _toggleTiles = Arrays.copyOf(_toggleTiles, _toggleCount * 2);
+            }
+
+            // the toggle belongs to the action in progress, whose frame is the next one
+            _toggleFrames[_toggleCount] = _frameCount;
+            _toggleTiles[_toggleCount++] = y * _width + x;
+        }
+
+        private Recorder(@Nonnull Level level) {
+            _width = level.getWidth();
+            _tile = level.getStartPos().getY() * _width + level.getStartPos().getX();
+            _dir = level.getStartDir();
+
+            addFrame();
+        }
+    }
+
+    /**
+     * Executes a program on a level and records the run. Every step takes 4 bytes, so the step budget bounds the
+     * size of the trace.
+     *
+     * @param level         level to run on
+     * @param program       program to execute
+     * @param maxSteps      see {@link LevelRun#exec(long, int)}, at most {@link Integer#MAX_VALUE} - 1
+     * @param maxDepth      see {@link LevelRun#exec(long, int)}
+     * @return              trace of the run
+     */
+    @Nonnull
+    public static RunTrace record(@Nonnull Level level, @Nonnull RobotProgram program, long maxSteps, int maxDepth) {
+        if (maxSteps >= Integer.MAX_VALUE) throw new IllegalArgumentException("step budget " + maxSteps + " exceeds the frame capacity");
+
+        Recorder recorder = new Recorder(level);
+
+        LevelRun.Result result = new LevelRun(level, program, recorder).exec(maxSteps, maxDepth);
+
+        return new RunTrace(level, result, Arrays.copyOf(recorder._frames, recorder._frameCount), Arrays.copyOf(recorder._toggleFrames, recorder._toggleCount), Arrays.copyOf(recorder._toggleTiles, recorder._toggleCount));
+    }
+
+    private RunTrace(@Nonnull Level level, @Nonnull LevelRun.Result result, @Nonnull int[] frames, @Nonnull int[] toggleFrames, @Nonnull int[] toggleTiles) {
+        _level = level;
+        _result = result;
+        _frames = frames;
+        _toggleFrames = toggleFrames;
+        _toggleTiles = toggleTiles;
+    }
+}
@@ -0,0 +1,142 @@
+package core;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Replays traces written by {@link TraceRecorder}. The positions and directions left out by the recorder are
+ * reconstructed from the level, starting at its start position, so the level must be the one the run was recorded on.
+ * A reader walks a sequence of traces, one run each.
+ */
+public class TraceReader {
+    private final byte[] _data;
+    private final int _end;
+    private int _pos;
+
+    private long readVarLong() {
+        long value = 0;
+
+        for (int shift = 0; ; shift += 7) {
+            if (_pos == _end) throw new IllegalArgumentException("trace truncated at " + _pos);
+            if (shift > 63) throw new IllegalArgumentException("malformed varint at " + _pos);
+
+            byte b = _data[_pos++];
+
+            value |= (long) (b & 0x7F) << shift;
+
+            if (b >= 0) return value;
+        }
+    }
+
+    /**
+     * Whether there is another trace to replay.
+     *
+     * @return      true if not at the end of the data
+     */
+    public boolean hasNext() {
+        return _pos < _end;
+    }
+
+    /**
+     * Replays the next trace, reporting the events of the recorded run in their original order.
+     *
+     * @param level             level the run was recorded on
+     * @param actionHandler     receives the events
+     * @return                  amount of steps replayed
+     * @throws IllegalArgumentException     the trace is malformed or does not fit the level
+     */
+    public long replay(@Nonnull Level level, @Nonnull LevelRun.ActionHandler actionHandler) {
+        int x = level.getStartPos().getX();
+        int y = level.getStartPos().getY();
+        int dir = level.getStartDir();
+        long steps = 0;
+
+        while (true) {
+            long token = readVarLong();
+            int kind = (int) (token & TraceRecorder.KIND_MASK);
+
+            if (kind == TraceRecorder.KIND_RESULT) {
+                actionHandler.result((token >>> TraceRecorder.KIND_BITS) == 1);
+
+                return steps;
+            }
+
+            long count = (token >>> TraceRecorder.KIND_BITS) + 1;
+
+            for (long i = 0; i < count; i++) {
+                switch (kind) {
+                    case TraceRecorder.KIND_TURN_LEFT: {
+                        int oldDir = dir;
+
+                        dir = dir == 3 ? 0 : dir + 1;
+
+                        actionHandler.turn(dir, oldDir);
+
+                        break;
+                    }
+                    case TraceRecorder.KIND_TURN_RIGHT: {
+                        int oldDir = dir;
+
+                        dir = dir == 0 ? 3 : dir - 1;
+
+                        actionHandler.turn(dir, oldDir);
+
+                        break;
+                    }
+                    case TraceRecorder.KIND_ADVANCE: {
+                        int newX = x + (dir == LevelRun.DIR_RIGHT ? 1 : dir == LevelRun.DIR_LEFT ? -1 : 0);
+                        int newY = y + (dir == LevelRun.DIR_DOWN ? 1 : dir == LevelRun.DIR_UP ? -1 : 0);
+
+                        if (newX < 0 || newX >= level.getWidth() || newY < 0 || newY >= level.getHeight()) throw new IllegalArgumentException("trace leaves the level at step " + steps);
+
+                        actionHandler.move(newX, newY, x, y);
+
+                        x = newX;
+                        y = newY;
+
+                        break;
+                    }
+                    case TraceRecorder.KIND_STAY:
+                        actionHandler.move(x, y, x, y);
+
+                        break;
+                    case TraceRecorder.KIND_BUMP:
+                        actionHandler.bump(x, y);
+
+                        break;
+                    case TraceRecorder.KIND_SWITCH:
+                        actionHandler.useSwitch(x, y);
+
+                        break;
+                }
+
+                actionHandler.action();
+
+                steps++;
+            }
+        }
+    }
+
+    /**
+     * Constructs a reader over traces in an array.
+     *
+     * @param data      traces
+     * @param offset    index of the first byte
+     * @param length    amount of bytes
+     */
+    public TraceReader(@Nonnull byte[] data, int offset, int length) {
+        if (offset < 0 || length < 0 || offset + length > data.length) throw new IndexOutOfBoundsException("range " + offset + "+" + length + " outside of array of length " + data.length);
+
+        _data = data;
+        _pos = offset;
+        _end = offset + length;
+    }
+
+    /**
+     * Constructs a reader over traces in an array.
+     *
+     * @param data      traces
+     */
+    public TraceReader(@Nonnull byte[] data) {
+        this(data, 0, data.length);
+    }
+}
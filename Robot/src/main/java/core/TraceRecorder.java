@@ -0,0 +1,238 @@
+package core;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+
+/**
+ * Records the events of runs in a compact binary form, to be replayed by {@link TraceReader}. Only what cannot be
+ * derived from the level is stored: a turn is left or right, a move either advances to the neighbor in the current
+ * direction or stays at the border, a switch is the one under the robot. So each step is one of a few kinds, and
+ * runs of steps of the same kind are written as a single varint <code>kind | (count - 1) << 3</code>, which makes
+ * repetitive programs cost a fraction of a bit per step. The end of each run is marked by its result, so one recorder
+ * can record any number of runs in a row.
+ *
+ * Without a sink the trace accumulates in memory. Given a sink, the recorder writes through a fixed buffer, which is
+ * flushed when full and at the end of every run.
+ */
+public class TraceRecorder implements LevelRun.ActionHandler {
+    /**
+     * step kinds, each followed by an action event on replay
+     */
+    final static int KIND_ACTION = 0;
+    final static int KIND_TURN_LEFT = 1;
+    final static int KIND_TURN_RIGHT = 2;
+    final static int KIND_ADVANCE = 3;
+    final static int KIND_STAY = 4;
+    final static int KIND_BUMP = 5;
+    final static int KIND_SWITCH = 6;
+    /**
+     * end of a run, the count field holds 1 for success
+     */
+    final static int KIND_RESULT = 7;
+
+    final static int KIND_BITS = 3;
+    final static int KIND_MASK = (1 << KIND_BITS) - 1;
+
+    private final static int DEFAULT_CAPACITY = 1 << 13;
+
+    @Nullable
+    private final OutputStream _sink;
+
+    private byte[] _buffer;
+    private int _size = 0;
+
+    /**
+     * kind of the event reported since the last action, {@link #KIND_ACTION} if none
+     */
+    private int _pending = KIND_ACTION;
+    /**
+     * kind and length of the run of steps not yet written
+     */
+    private int _runKind = KIND_ACTION;
+    private long _runLength = 0;
+
+    private long _steps = 0;
+
+    /**
+     * Amount of steps recorded since construction or {@link #reset()}.
+     *
+     * @return      recorded steps
+     */
+    public long getSteps() {
+        return _steps;
+    }
+
+    /**
+     * bytes already passed to the sink
+     */
+    private long _written = 0;
+
+    /**
+     * Amount of bytes of the trace, those already passed to the sink included. The last run of steps is only
+     * written once the next one starts or the run ends.
+     *
+     * @return      trace size in bytes
+     */
+    public long getByteCount() {
+        return _written + _size;
+    }
+
+    private void flushBuffer() {
+        if (_sink == null) {
+            _buffer = Arrays.copyOf(_buffer, _buffer.length * 2);
+
+            return;
+        }
+
+        try {
+            _sink.write(_buffer, 0, _size);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        _written += _size;
+        _size = 0;
+    }
+
+    private void writeVarLong(long value) {
+        // a varint of a long takes up to 10 bytes
+        if (_buffer.length - _size < 10) flushBuffer();
+
+        while ((value & ~0x7FL) != 0) {
+            _buffer[_size++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+
+        _buffer[_size++] = (byte) value;
+    }
+
+    private void flushRun() {
+        if (_runLength == 0) return;
+
+        writeVarLong(_runKind | (_runLength - 1) << KIND_BITS);
+
+        _runLength = 0;
+    }
+
+    private void step(int kind) {
+        if (kind != _runKind) {
+            flushRun();
+
+            _runKind = kind;
+        }
+
+        _runLength++;
+        _steps++;
+    }
+
+    @Override
+    public void result(boolean success) {
+        flushRun();
+        writeVarLong(KIND_RESULT | (success ? 1 : 0) << KIND_BITS);
+
+        _pending = KIND_ACTION;
+
+        if (_sink != null) flushBuffer();
+    }
+
+    @Override
+    public void action() {
+        step(_pending);
+
+        _pending = KIND_ACTION;
+    }
+
+    @Override
+    public void turn(int newDir, int oldDir) {
+        _pending = newDir == (oldDir == 3 ? 0 : oldDir + 1) ? KIND_TURN_LEFT : KIND_TURN_RIGHT;
+    }
+
+    @Override
+    public void move(int newX, int newY, int oldX, int oldY) {
+        _pending = newX == oldX && newY == oldY ? KIND_STAY : KIND_ADVANCE;
+    }
+
+    @Override
+    public void useSwitch(int x, int y) {
+        _pending = KIND_SWITCH;
+    }
+
+    @Override
+    public void bump(int x, int y) {
+        _pending = KIND_BUMP;
+    }
+
+    /**
+     * Discards the in-memory trace, keeping the buffer for the next runs.
+     */
+    public void reset() {
+        _size = 0;
+        _written = 0;
+        _steps = 0;
+        _pending = KIND_ACTION;
+        _runLength = 0;
+    }
+
+    /**
+     * Direct access to the in-memory trace, valid up to {@link #size()} and until the next event.
+     *
+     * @return      internal buffer
+     */
+    @Nonnull
+    public byte[] buffer() {
+        return _buffer;
+    }
+
+    /**
+     * Amount of bytes in the buffer, not yet passed to the sink if there is one.
+     *
+     * @return      buffered bytes
+     */
+    public int size() {
+        return _size;
+    }
+
+    /**
+     * Copy of the in-memory trace.
+     *
+     * @return      trace bytes
+     */
+    @Nonnull
+    public byte[] toByteArray() {
+        return Arrays.copyOf(_buffer, _size);
+    }
+
+    /**
+     * Constructs a recorder keeping the trace in memory.
+     */
+    public TraceRecorder() {
+        _sink = null;
+        _buffer = new byte[64];
+    }
+
+    /**
+     * Constructs a recorder writing the trace to a sink.
+     *
+     * @param sink          receives the trace in blocks of up to <code>capacity</code> bytes, not closed
+     * @param capacity      size of the buffer, at least 16
+     */
+    public TraceRecorder(@Nonnull OutputStream sink, int capacity) {
+        if (capacity < 16) throw new IllegalArgumentException("buffer capacity " + capacity + " below 16");
+
+        _sink = sink;
+        _buffer = new byte[capacity];
+    }
+
+    /**
+     * Constructs a recorder writing the trace to a sink through a buffer of 8 KB.
+     *
+     * @param sink          receives the trace, not closed
+     */
+    public TraceRecorder(@Nonnull OutputStream sink) {
+        this(sink, DEFAULT_CAPACITY);
+    }
+}
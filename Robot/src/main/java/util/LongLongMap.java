@@ -0,0 +1,122 @@
+package util;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing hash map from long keys to long values without boxing. Not thread-safe.
+ */
+public class LongLongMap {
+    /**
+     * returned by {@link #get(long)} for keys that are not contained
+     */
+    public final static long ABSENT = Long.MIN_VALUE;
+
+    private final static float LOAD_FACTOR = 0.5F;
+
+    private long[] _keys;
+    private long[] _values;
+    private boolean[] _used;
+    private int _size = 0;
+    private int _mask;
+
+    /**
+     * Amount of contained keys.
+     *
+     * @return      size
+     */
+    public int size() {
+        return _size;
+    }
+
+    private static int slot(long key, int mask) {
+        long h = key * 0x9E3779B97F4A7C15L;
+
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+
+    /**
+     * Looks up the value for a key.
+     *
+     * @param key       key
+     * @return          value, {@link #ABSENT} if the key is not contained
+     */
+    public long get(long key) {
+        for (int i = slot(key, _mask); _used[i]; i = (i + 1) & _mask) {
+            if (_keys[i] == key) return _values[i];
+        }
+
+        return ABSENT;
+    }
+
+    /**
+     * Associates a value with a key unless the key is already contained.
+     *
+     * @param key       key
+     * @param value     value
+     * @return          the value already associated with the key, {@link #ABSENT} if the value was inserted
+     */
+    public long putIfAbsent(long key, long value) {
+        int i = slot(key, _mask);
+
+        for (; _used[i]; i = (i + 1) & _mask) {
+            if (_keys[i] == key) return _values[i];
+        }
+
+        _used[i] = true;
+        _keys[i] = key;
+        _values[i] = value;
+
+        if (++_size > _keys.length * LOAD_FACTOR) grow();
+
+        return ABSENT;
+    }
+
+    private void grow() {
+        long[] keys = _keys;
+        long[] values = _values;
+        boolean[] used = _used;
+
+        allocate(keys.length * 2);
+
+        for (int i = 0; i < keys.length; i++) {
+            if (!used[i]) continue;
+
+            int j = slot(keys[i], _mask);
+
+            while (_used[j]) j = (j + 1) & _mask;
+
+            _used[j] = true;
+            _keys[j] = keys[i];
+            _values[j] = values[i];
+        }
+    }
+
+    private void allocate(int capacity) {
+        _keys = new long[capacity];
+        _values = new long[capacity];
+        _used = new boolean[capacity];
+        _mask = capacity - 1;
+    }
+
+    /**
+     * Removes all keys, keeping the allocated capacity.
+     */
+    public void clear() {
+        if (_size == 0) return;
+
+        Arrays.fill(_used, false);
+
+        _size = 0;
+    }
+
+    /**
+     * Creates an empty map.
+     *
+     * @param expectedSize      amount of keys the map should hold without resizing
+     */
+    public LongLongMap(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(4, (int) (expectedSize / LOAD_FACTOR)) - 1) << 1;
+
+        allocate(capacity);
+    }
+}
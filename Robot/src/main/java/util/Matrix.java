@@ -1,24 +1,319 @@
 package util;
 
+import javax.annotation.Nonnull;
 import java.lang.reflect.Array;
+import java.util.stream.IntStream;
 
+/**
+ * Transposition of rectangular matrices, indexed <code>matrix[x][y]</code>. The source is walked in square tiles of
+ * {@link #BLOCK} x {@link #BLOCK} elements, so both source and destination are accessed within a few cache lines at a
+ * time instead of striding through a whole column per element. Matrices of at least {@link #PARALLEL_THRESHOLD}
+ * elements are transposed in parallel on the common pool, split into stripes of tiles.
+ */
 public class Matrix {
     /**
-     * Transposes the given matrix, swapping its dimensions and elements.
+     * side length of the tiles
+     */
+    public final static int BLOCK = 32;
+    /**
+     * Flat arrays whose row stride is a multiple of this many bytes map the rows of a tile onto the same cache sets,
+     * which evict each other. Such arrays are walked in tiles of {@link #ALIASING_BLOCK} elements instead.
+     */
+    private final static int ALIASING_STRIDE = 1024;
+    private final static int ALIASING_BLOCK = 8;
+    /**
+     * amount of elements from which on matrices are transposed in parallel
+     */
+    public final static long PARALLEL_THRESHOLD = 1 << 20;
+
+    /**
+     * transposes the source rows in a range
+     */
+    private interface Stripe {
+        void transpose(int fromX, int toX);
+    }
+
+    private static void run(int width, int height, @Nonnull Stripe stripe) {
+        if ((long) width * height < PARALLEL_THRESHOLD) {
+            stripe.transpose(0, width);
+
+            return;
+        }
+
+        int stripes = (width + BLOCK - 1) / BLOCK;
+
+        IntStream.range(0, stripes).parallel().forEach(i -> stripe.transpose(i * BLOCK, Math.min(width, (i + 1) * BLOCK)));
+    }
+
+    private static void checkRectangular(int rowLength, int x, int height) {
+        if (rowLength != height) throw new IllegalArgumentException("matrix is not rectangular, row " + x + " has length " + rowLength + ", expected " + height);
+    }
+
+    /**
+     * Transposes the given matrix, swapping its dimensions and elements. The element type of the result is the
+     * component type of <code>matrix</code>, elements may be null.
      *
      * @param matrix    matrix to be transposed
      * @param <T>       any object type
      * @return          new matrix
+     * @throws IllegalArgumentException     the matrix is not rectangular
      */
-    public static <T> T[][] transpose(T[][] matrix) {
-        T[][] newMatrix = (T[][]) Array.newInstance(matrix[0][0].getClass(), matrix[0].length, matrix.length);
+    @Nonnull
+    @SuppressWarnings("unchecked")
+    public static <T> T[][] transpose(@Nonnull T[][] matrix) {
+        int width = matrix.length;
+        int height = width > 0 ? matrix[0].length : 0;
+
+        for (int x = 0; x < width; x++) checkRectangular(matrix[x].length, x, height);
+
+        T[][] newMatrix = (T[][]) Array.newInstance(matrix.getClass().getComponentType().getComponentType(), height, width);
+
+        run(width, height, (fromX, toX) -> {
+            for (int x0 = fromX; x0 < toX; x0 += BLOCK) {
+                int x1 = Math.min(x0 + BLOCK, toX);
+
+                for (int y0 = 0; y0 < height; y0 += BLOCK) {
+                    int y1 = Math.min(y0 + BLOCK, height);
 
-        for (int x = 0; x < matrix.length; x++) {
-            for (int y = 0; y < matrix[x].length; y++) {
-                newMatrix[y][x] = matrix[x][y];
+                    for (int x = x0; x < x1; x++) {
+                        T[] row = matrix[x];
+
+                        for (int y = y0; y < y1; y++) newMatrix[y][x] = row[y];
+                    }
+                }
             }
-        }
+        });
 
         return newMatrix;
     }
+
+    /**
+     * Transposes the given matrix, swapping its dimensions and elements.
+     *
+     * @param matrix    matrix to be transposed
+     * @return          new matrix
+     * @throws IllegalArgumentException     the matrix is not rectangular
+     */
+    @Nonnull
+    public static int[][] transpose(@Nonnull int[][] matrix) {
+        int width = matrix.length;
+        int height = width > 0 ? matrix[0].length : 0;
+
+        for (int x = 0; x < width; x++) checkRectangular(matrix[x].length, x, height);
+
+        int[][] newMatrix = new int[height][width];
+
+        run(width, height, (fromX, toX) -> {
+            for (int x0 = fromX; x0 < toX; x0 += BLOCK) {
+                int x1 = Math.min(x0 + BLOCK, toX);
+
+                for (int y0 = 0; y0 < height; y0 += BLOCK) {
+                    int y1 = Math.min(y0 + BLOCK, height);
+
+                    for (int x = x0; x < x1; x++) {
+                        int[] row = matrix[x];
+
+                        for (int y = y0; y < y1; y++) newMatrix[y][x] = row[y];
+                    }
+                }
+            }
+        });
+
+        return newMatrix;
+    }
+
+    /**
+     * Transposes the given matrix, swapping its dimensions and elements.
+     *
+     * @param matrix    matrix to be transposed
+     * @return          new matrix
+     * @throws IllegalArgumentException     the matrix is not rectangular
+     */
+    @Nonnull
+    public static boolean[][] transpose(@Nonnull boolean[][] matrix) {
+        int width = matrix.length;
+        int height = width > 0 ? matrix[0].length : 0;
+
+        for (int x = 0; x < width; x++) checkRectangular(matrix[x].length, x, height);
+
+        boolean[][] newMatrix = new boolean[height][width];
+
+        run(width, height, (fromX, toX) -> {
+            for (int x0 = fromX; x0 < toX; x0 += BLOCK) {
+                int x1 = Math.min(x0 + BLOCK, toX);
+
+                for (int y0 = 0; y0 < height; y0 += BLOCK) {
+                    int y1 = Math.min(y0 + BLOCK, height);
+
+                    for (int x = x0; x < x1; x++) {
+                        boolean[] row = matrix[x];
+
+                        for (int y = y0; y < y1; y++) newMatrix[y][x] = row[y];
+                    }
+                }
+            }
+        });
+
+        return newMatrix;
+    }
+
+    /**
+     * Transposes a matrix stored in a flat array into another one. Element <code>[x][y]</code> of the source is
+     * <code>src[srcOffset + x * srcStride + y]</code>, it is written to
+     * <code>dst[dstOffset + y * dstStride + x]</code>. The arrays must not overlap.
+     *
+     * @param src           source array
+     * @param srcOffset     index of the source element [0][0]
+     * @param srcStride     distance between the source rows, at least <code>height</code>
+     * @param dst           destination array
+     * @param dstOffset     index of the destination element [0][0]
+     * @param dstStride     distance between the destination rows, at least <code>width</code>
+     * @param width         amount of source rows
+     * @param height        amount of source columns
+     * @throws IllegalArgumentException     the strides are too small
+     * @throws IndexOutOfBoundsException    the matrices exceed the arrays
+     */
+    public static void transpose(@Nonnull byte[] src, int srcOffset, int srcStride, @Nonnull byte[] dst, int dstOffset, int dstStride, int width, int height) {
+        if (width < 0 || height < 0) throw new IllegalArgumentException("invalid dimensions " + width + "x" + height);
+        if (width == 0 || height == 0) return;
+        if (srcStride < height || dstStride < width) throw new IllegalArgumentException("strides " + srcStride + "/" + dstStride + " too small for " + width + "x" + height);
+
+        if (srcOffset < 0 || srcOffset + (long) (width - 1) * srcStride + height > src.length) throw new IndexOutOfBoundsException("source matrix exceeds array of length " + src.length);
+        if (dstOffset < 0 || dstOffset + (long) (height - 1) * dstStride + width > dst.length) throw new IndexOutOfBoundsException("destination matrix exceeds array of length " + dst.length);
+
+        int block = (srcStride & ALIASING_STRIDE - 1) == 0 || (dstStride & ALIASING_STRIDE - 1) == 0 ? ALIASING_BLOCK : BLOCK;
+
+        run(width, height, (fromX, toX) -> {
+            for (int x0 = fromX; x0 < toX; x0 += block) {
+                int x1 = Math.min(x0 + block, toX);
+
+                for (int y0 = 0; y0 < height; y0 += block) {
+                    int y1 = Math.min(y0 + block, height);
+
+                    for (int x = x0; x < x1; x++) {
+                        int srcRow = srcOffset + x * srcStride;
+
+                        for (int y = y0; y < y1; y++) dst[dstOffset + y * dstStride + x] = src[srcRow + y];
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Transposes a densely stored matrix (stride = height).
+     *
+     * @param src       source elements, <code>[x][y]</code> at <code>x * height + y</code>
+     * @param width     amount of source rows
+     * @param height    amount of source columns
+     * @return          new array holding the transposed matrix, <code>[y][x]</code> at <code>y * width + x</code>
+     */
+    @Nonnull
+    public static byte[] transpose(@Nonnull byte[] src, int width, int height) {
+        if (src.length != (long) width * height) throw new IllegalArgumentException("array of length " + src.length + " does not hold " + width + "x" + height);
+
+        byte[] dst = new byte[src.length];
+
+        transpose(src, 0, height, dst, 0, width, width, height);
+
+        return dst;
+    }
+
+    private static void checkSquare(int rowLength, int x, int size) {
+        if (rowLength != size) throw new IllegalArgumentException("matrix is not square, row " + x + " has length " + rowLength + ", expected " + size);
+    }
+
+    /**
+     * Transposes a square matrix in place, swapping the elements across the diagonal tile by tile.
+     *
+     * @param matrix    square matrix
+     * @param <T>       any object type
+     * @throws IllegalArgumentException     the matrix is not square
+     */
+    public static <T> void transposeInPlace(@Nonnull T[][] matrix) {
+        int size = matrix.length;
+
+        for (int x = 0; x < size; x++) checkSquare(matrix[x].length, x, size);
+
+        for (int x0 = 0; x0 < size; x0 += BLOCK) {
+            int x1 = Math.min(x0 + BLOCK, size);
+
+            for (int y0 = x0; y0 < size; y0 += BLOCK) {
+                int y1 = Math.min(y0 + BLOCK, size);
+
+                for (int x = x0; x < x1; x++) {
+                    T[] row = matrix[x];
+
+                    for (int y = Math.max(y0, x + 1); y < y1; y++) {
+                        T swap = row[y];
+
+                        row[y] = matrix[y][x];
+                        matrix[y][x] = swap;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Transposes a square matrix in place, swapping the elements across the diagonal tile by tile.
+     *
+     * @param matrix    square matrix
+     * @throws IllegalArgumentException     the matrix is not square
+     */
+    public static void transposeInPlace(@Nonnull int[][] matrix) {
+        int size = matrix.length;
+
+        for (int x = 0; x < size; x++) checkSquare(matrix[x].length, x, size);
+
+        for (int x0 = 0; x0 < size; x0 += BLOCK) {
+            int x1 = Math.min(x0 + BLOCK, size);
+
+            for (int y0 = x0; y0 < size; y0 += BLOCK) {
+                int y1 = Math.min(y0 + BLOCK, size);
+
+                for (int x = x0; x < x1; x++) {
+                    int[] row = matrix[x];
+
+                    for (int y = Math.max(y0, x + 1); y < y1; y++) {
+                        int swap = row[y];
+
+                        row[y] = matrix[y][x];
+                        matrix[y][x] = swap;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Transposes a square matrix in place, swapping the elements across the diagonal tile by tile.
+     *
+     * @param matrix    square matrix
+     * @throws IllegalArgumentException     the matrix is not square
+     */
+    public static void transposeInPlace(@Nonnull boolean[][] matrix) {
+        int size = matrix.length;
+
+        for (int x = 0; x < size; x++) checkSquare(matrix[x].length, x, size);
+
+        for (int x0 = 0; x0 < size; x0 += BLOCK) {
+            int x1 = Math.min(x0 + BLOCK, size);
+
+            for (int y0 = x0; y0 < size; y0 += BLOCK) {
+                int y1 = Math.min(y0 + BLOCK, size);
+
+                for (int x = x0; x < x1; x++) {
+                    boolean[] row = matrix[x];
+
+                    for (int y = Math.max(y0, x + 1); y < y1; y++) {
+                        boolean swap = row[y];
+
+                        row[y] = matrix[y][x];
+                        matrix[y][x] = swap;
+                    }
+                }
+            }
+        }
+    }
 }
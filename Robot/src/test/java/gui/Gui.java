@@ -2,53 +2,55 @@ package gui;
 
 import core.Level;
 import core.LevelRun;
+import core.Position;
 import core.RobotAlgo;
+import core.RobotProgram;
+import core.RunTrace;
+import javafx.animation.AnimationTimer;
 import javafx.animation.KeyFrame;
+import javafx.animation.PauseTransition;
 import javafx.animation.Timeline;
 import javafx.application.Application;
-import javafx.application.Platform;
+import javafx.geometry.Insets;
 import javafx.geometry.Point3D;
+import javafx.geometry.Pos;
 import javafx.scene.*;
+import javafx.scene.control.Button;
+import javafx.scene.control.Label;
+import javafx.scene.control.Slider;
+import javafx.scene.control.ToggleButton;
+import javafx.scene.layout.BorderPane;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.Pane;
+import javafx.scene.layout.Priority;
 import javafx.scene.paint.Color;
 import javafx.scene.paint.PhongMaterial;
 import javafx.scene.shape.Box;
 import javafx.scene.shape.Cylinder;
 import javafx.stage.Stage;
 import javafx.util.Duration;
-import javafx.util.Pair;
 import util.Matrix;
 
 import javax.annotation.Nonnull;
-import javax.annotation.Nullable;
-import java.util.LinkedHashSet;
-import java.util.Set;
 
 public class Gui extends Application {
-    private final Set<Thread> _threads = new LinkedHashSet<>();
+    private GameScene _gameScene;
 
     private final Group _root = new Group();
 
     private class GameScene extends Scene {
         private Level _level;
-        private LevelRun _levelRun;
+        private final SubScene _subScene;
 
         private class Arrow extends Group {
-            private Tile _curTile = null;
+            private void setTile(int x, int y) {
+                setTranslateX(_chunks.tileX(x));
+                setTranslateY(_chunks.tileY(y));
+                setTranslateZ(_chunks.topZ(x, y) - 20);
+            }
 
             private final Group _inner;
 
-            private void setTile(@Nullable Tile tile) {
-                if (_curTile != null) _curTile.getChildren().remove(this);
-
-                _curTile = tile;
-
-                if (_curTile != null) {
-                    setTranslateZ(_curTile.getBox().getTranslateZ() - _curTile.getBox().getDepth() / 2 - 20);
-
-                    _curTile.getChildren().add(this);
-                }
-            }
-
             private void setDir(int dir) {
                 _inner.setRotate((1 - dir) * 90);
             }
@@ -105,94 +107,92 @@ public class Gui extends Application {
         private final Arrow _arrow;
 
         private void updateArrow() {
-            if (_level == null) _arrow.setTile(null);
+            _arrow.setVisible(_level != null);
 
             if (_level != null) {
-                if (_levelRun == null) {
-                    _arrow.setTile(_tiles[_level.getStartPos().getKey()][_level.getStartPos().getValue()]);
+                if (_replay == null) {
+                    _arrow.setTile(_level.getStartPos().getX(), _level.getStartPos().getY());
 
                     _arrow.setDir(_level.getStartDir());
                 } else {
-                    _arrow.setTile(_tiles[_levelRun.getCurX()][_levelRun.getCurY()]);
+                    RunTrace trace = _replay.getTrace();
+                    int frame = _replay.getFrame();
+
+                    _arrow.setTile(trace.getX(frame), trace.getY(frame));
 
-                    _arrow.setDir(_levelRun.getDir());
+                    _arrow.setDir(trace.getDir(frame));
                 }
             }
         }
 
-        private class Tile extends Group {
-            private final Box _box = new Box();
+        private LevelChunks _chunks;
+        private PerspectiveCamera _camera;
+        private Group _cameraGroup;
 
-            public Box getBox() {
-                return _box;
-            }
+        private void cull() {
+            if (_chunks != null && _camera != null && _subScene.getHeight() > 0) _chunks.cull(_camera, _subScene.getWidth() / _subScene.getHeight());
+        }
 
-            public void setSwitch(boolean active) {
-                _box.setMaterial(new PhongMaterial(active ? Color.YELLOW : Color.BLUE));
-            }
+        /**
+         * Lets the camera be dragged across the level and zoomed in and out by scrolling.
+         */
+        private void addCameraControls(@Nonnull Pane view) {
+            final double[] dragStart = new double[2];
 
-            private Tile(int x, int y) {
-                _box.setWidth(TILE_SIZE - 3);
-                _box.setHeight(TILE_SIZE - 3);
-                _box.setDepth(20 + _level.getHeightMap()[x][y] * TILE_DEPTH);
+            view.setOnMousePressed(event -> {
+                dragStart[0] = event.getX();
+                dragStart[1] = event.getY();
+            });
 
-                _box.setTranslateX(0);
-                _box.setTranslateY(0);
-                _box.setTranslateZ(-_box.getDepth()/2);
+            view.setOnMouseDragged(event -> {
+                // move the level along with the mouse, faster the further away the camera is
+                double scale = -(_camera.getTranslateZ() + _cameraGroup.getTranslateZ()) / 1250D;
 
-                PhongMaterial material = new PhongMaterial();
+                _cameraGroup.setTranslateX(_cameraGroup.getTranslateX() - (event.getX() - dragStart[0]) * scale);
+                _cameraGroup.setTranslateY(_cameraGroup.getTranslateY() - (event.getY() - dragStart[1]) * scale);
 
-                material.setDiffuseColor((_level.getSwitchMap()[x][y]) ? Color.BLUE : Color.WHITE);
+                dragStart[0] = event.getX();
+                dragStart[1] = event.getY();
 
-                _box.setMaterial(material);
+                cull();
+            });
 
-                getChildren().add(_box);
-            }
-        }
+            view.setOnScroll(event -> {
+                _cameraGroup.setTranslateZ(Math.min(_cameraGroup.getTranslateZ() + event.getDeltaY(), 1000D));
 
-        private Tile[][] _tiles;
+                cull();
+            });
 
-        private final int TILE_SIZE = 50;
-        private final int TILE_DEPTH = 35;
+            _subScene.widthProperty().addListener(observable -> cull());
+            _subScene.heightProperty().addListener(observable -> cull());
+        }
 
         private void setLevel(@Nonnull Level level) {
             _level = level;
-            int width = ((level.getWidth() - 1) * TILE_SIZE);
-            int height = ((level.getHeight() - 1) * TILE_SIZE);
-
-            _tiles = new Tile[level.getWidth()][level.getHeight()];
-
             Group base = new Group();
 
             _root.getChildren().add(base);
 
             base.setTranslateZ(-25);
 
-            for (int y = 0; y < level.getHeight(); y++) {
-                for (int x = 0; x < level.getWidth(); x++) {
-                    Tile tile = new Tile(x, y);
-
-                    _tiles[x][y] = tile;
-
-                    int x2 = TILE_SIZE * x - width / 2;
-                    int y2 = TILE_SIZE * y - height / 2;
+            _chunks = new LevelChunks(level);
 
-                    tile.setTranslateX(x2);
-                    tile.setTranslateY(y2);
-
-                    base.getChildren().add(tile);
-                }
-            }
+            base.getChildren().add(_chunks);
+            base.getChildren().add(_arrow);
 
             Group camGroup = new Group();
 
+            _cameraGroup = camGroup;
+
             camGroup.setTranslateX(0);
             camGroup.setTranslateY(0);
             camGroup.setTranslateZ(200);
 
             _root.getChildren().add(camGroup);
 
-            Camera cam = new PerspectiveCamera(true);
+            PerspectiveCamera cam = new PerspectiveCamera(true);
+
+            _camera = cam;
 
             camGroup.getChildren().add(cam);
 
@@ -215,7 +215,9 @@ public class Gui extends Application {
 
             //_root.getChildren().add(cam);
 
-            setCamera(cam);
+            _subScene.setCamera(cam);
+
+            cull();
 
             PointLight light = new PointLight(Color.WHITE);
 
@@ -240,63 +242,182 @@ public class Gui extends Application {
             base.getChildren().add(light);
         }
 
-        private void run() {
-            RobotAlgo algo = new RobotAlgo(new String[]{"l", "m", "r", "m", "1", "2"}, new String[]{"m", "m", "m"}, new String[]{"r", "m", "s", "s", "r", "r", "r", "r", "s", "j", "r", "m", "l", "m", "s"});
+        /**
+         * step budget of the recorded run, which bounds the trace to 64 MB
+         */
+        private final static long MAX_STEPS = 1 << 24;
 
-            final boolean[] fail = {true};
+        /**
+         * Plays back a recorded run frame by frame, driven by the pulses of the FX thread, so the run itself never
+         * waits for the animation and seeking is merely a matter of picking another frame.
+         */
+        private class Replay extends AnimationTimer {
+            private final RunTrace _trace;
 
-            _levelRun = new LevelRun(_level, algo, new LevelRun.ActionHandler() {
-                @Override
-                public void result(boolean success) {
-                    fail[0] = !success;
-                }
+            public RunTrace getTrace() {
+                return _trace;
+            }
 
-                @Override
-                public void action() {
-                    try {
-                        Thread.sleep(500);
-                    } catch (InterruptedException e) {
-                        throw new RuntimeException(e);
-                    }
-                }
+            private int _frame = 0;
 
-                @Override
-                public void turn(int newDir, int oldDir) {
-                    Platform.runLater(() -> updateArrow());
-                }
+            public int getFrame() {
+                return _frame;
+            }
 
-                @Override
-                public void move(int newX, int newY, int oldX, int oldY) {
-                    Platform.runLater(() -> updateArrow());
-                }
+            /**
+             * fractional frame reached by playback, advanced by the elapsed time
+             */
+            private double _position = 0D;
+            private long _lastPulse = -1;
+            private boolean _playing = false;
+
+            /**
+             * frames per second
+             */
+            private double _speed = 2D;
+            private boolean _fastForward = false;
+
+            private int lastFrame() {
+                return _trace.getFrameCount() - 1;
+            }
+
+            @Override
+            public void handle(long now) {
+                if (_playing && _lastPulse >= 0) {
+                    double speed = _fastForward ? _speed * FAST_FORWARD : _speed;
 
-                @Override
-                public void useSwitch(int x, int y) {
-                    _tiles[x][y].setSwitch(!_levelRun.getRemainingSwitches().contains(new Pair<>(x, y)));
+                    _position = Math.min(_position + (now - _lastPulse) / 1E9D * speed, lastFrame());
+
+                    show((int) _position);
+
+                    if (_frame == lastFrame()) setPlaying(false);
                 }
+
+                _lastPulse = now;
+            }
+
+            private void setPlaying(boolean playing) {
+                // replaying a finished run starts over
+                if (playing && _frame == lastFrame()) seek(0);
+
+                _playing = playing;
+                _playButton.setText(playing ? "Pause" : "Play");
+            }
+
+            private void seek(int frame) {
+                _position = frame;
+
+                show(frame);
+            }
+
+            private void show(int frame) {
+                if (frame == _frame) return;
+
+                _trace.toggles(_frame, frame, (x, y) -> _chunks.toggleSwitch(x, y));
+
+                _frame = frame;
+
+                updateArrow();
+                updateControls();
+            }
+
+            private Replay(@Nonnull RunTrace trace) {
+                _trace = trace;
+            }
+        }
+
+        private final static double FAST_FORWARD = 16D;
+
+        private Replay _replay = null;
+
+        private final Button _playButton = new Button("Play");
+        private final ToggleButton _fastForwardButton = new ToggleButton(">>");
+        private final Slider _seekSlider = new Slider(0D, 0D, 0D);
+        private final Slider _speedSlider = new Slider(1D, 60D, 2D);
+        private final Label _frameLabel = new Label();
+        /**
+         * set while the seek slider follows playback, so its listener does not seek again
+         */
+        private boolean _updatingControls = false;
+
+        private void updateControls() {
+            if (_replay == null) return;
+
+            _updatingControls = true;
+
+            _seekSlider.setMax(_replay.lastFrame());
+            _seekSlider.setValue(_replay.getFrame());
+
+            _updatingControls = false;
+
+            _frameLabel.setText("step " + _replay.getFrame() + "/" + _replay.lastFrame() + (_replay.getFrame() == _replay.lastFrame() ? " " + _replay.getTrace().getResult() : ""));
+        }
+
+        @Nonnull
+        private Pane createControls() {
+            _playButton.setOnAction(event -> {
+                if (_replay != null) _replay.setPlaying(!_replay._playing);
             });
 
-            Thread thread = new Thread(() -> {
-                try {
-                    Thread.sleep(2000);
+            _fastForwardButton.selectedProperty().addListener((observable, oldValue, newValue) -> {
+                if (_replay != null) _replay._fastForward = newValue;
+            });
 
-                    _levelRun.exec();
-                } catch (InterruptedException e) {
-                    throw new RuntimeException(e);
-                }
+            _seekSlider.valueProperty().addListener((observable, oldValue, newValue) -> {
+                if (_replay != null && !_updatingControls) _replay.seek(newValue.intValue());
             });
 
-            _threads.add(thread);
+            _speedSlider.valueProperty().addListener((observable, oldValue, newValue) -> {
+                if (_replay != null) _replay._speed = newValue.doubleValue();
+            });
 
-            /*thread.setUncaughtExceptionHandler((t, e) -> {
-                //mute
-            });*/
+            HBox.setHgrow(_seekSlider, Priority.ALWAYS);
 
-            thread.start();
+            HBox controls = new HBox(8D, _playButton, _fastForwardButton, new Label("speed"), _speedSlider, _seekSlider, _frameLabel);
+
+            controls.setAlignment(Pos.CENTER_LEFT);
+            controls.setPadding(new Insets(4D));
+
+            return controls;
+        }
+
+        private void run() {
+            RobotAlgo algo = new RobotAlgo(new String[]{"l", "m", "r", "m", "1", "2"}, new String[]{"m", "m", "m"}, new String[]{"r", "m", "s", "s", "r", "r", "r", "r", "s", "j", "r", "m", "l", "m", "s"});
+
+            // the run completes right away, only its playback takes time
+            _replay = new Replay(RunTrace.record(_level, RobotProgram.compile(algo), MAX_STEPS, LevelRun.DEFAULT_MAX_DEPTH));
+
+            updateControls();
+
+            _replay.start();
+
+            PauseTransition delay = new PauseTransition(Duration.seconds(2));
+
+            delay.setOnFinished(event -> _replay.setPlaying(true));
+
+            delay.play();
+        }
+
+        private void stop() {
+            if (_replay != null) _replay.stop();
         }
 
         private GameScene() {
-            super(_root, 1024, 768, true, SceneAntialiasing.BALANCED);
+            super(new BorderPane(), 1024, 768);
+
+            _subScene = new SubScene(_root, 1024, 768, true, SceneAntialiasing.BALANCED);
+
+            Pane view = new Pane(_subScene);
+
+            _subScene.widthProperty().bind(view.widthProperty());
+            _subScene.heightProperty().bind(view.heightProperty());
+
+            BorderPane pane = (BorderPane) getRoot();
+
+            addCameraControls(view);
+
+            pane.setCenter(view);
+            pane.setBottom(createControls());
 
             _root.setDepthTest(DepthTest.ENABLE);
 
@@ -324,7 +445,7 @@ public class Gui extends Application {
                     {3, 3, 3, 3, 3, 3, 3}
             });
 
-            Level level = new Level(Gui.class.getSimpleName(), switchMap, heightMap, new Pair<>(1, 3), LevelRun.DIR_RIGHT);
+            Level level = new Level(Gui.class.getSimpleName(), switchMap, heightMap, new Position(1, 3), LevelRun.DIR_RIGHT);
 
             setLevel(level);
 
@@ -369,9 +490,11 @@ public class Gui extends Application {
     public void start(Stage primaryStage) {
         GameScene gameScene = new GameScene();
 
+        _gameScene = gameScene;
+
         gameScene.run();
 
-        gameScene.setFill(Color.GREY);
+        gameScene._subScene.setFill(Color.GREY);
 
         primaryStage.setTitle("GUI");
         primaryStage.setScene(gameScene);
@@ -383,8 +506,6 @@ public class Gui extends Application {
     public void stop() throws Exception {
         super.stop();
 
-        for (Thread thread : _threads) {
-            thread.interrupt();
-        }
+        if (_gameScene != null) _gameScene.stop();
     }
 }
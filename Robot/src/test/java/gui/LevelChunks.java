@@ -0,0 +1,264 @@
+package gui;
+
+import core.Level;
+import javafx.geometry.Bounds;
+import javafx.geometry.Point3D;
+import javafx.scene.Group;
+import javafx.scene.PerspectiveCamera;
+import javafx.scene.image.PixelWriter;
+import javafx.scene.image.WritableImage;
+import javafx.scene.paint.Color;
+import javafx.scene.paint.PhongMaterial;
+import javafx.scene.shape.CullFace;
+import javafx.scene.shape.MeshView;
+import javafx.scene.shape.TriangleMesh;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Renders the tiles of a level as a few merged meshes instead of one node per tile. The level is cut into chunks of
+ * {@link #CHUNK} x {@link #CHUNK} tiles, each a single {@link MeshView} holding a box per tile. All chunks share one
+ * material, whose diffuse map is a strip of one pixel per tile color, so a tile is colored by the texture coordinates
+ * of its faces and a switch toggle rewrites just those in the mesh of its chunk. Chunks outside the view of the
+ * camera are hidden by {@link #cull(PerspectiveCamera, double)}.
+ */
+class LevelChunks extends Group {
+    /**
+     * side length of the chunks in tiles
+     */
+    final static int CHUNK = 32;
+
+    final static int TILE_SIZE = 50;
+    final static int TILE_DEPTH = 35;
+
+    /**
+     * texture coordinate indexes of the tile colors
+     */
+    private final static int COLOR_PLAIN = 0;
+    private final static int COLOR_SWITCH = 1;
+    private final static int COLOR_SWITCH_ACTIVE = 2;
+    private final static Color[] COLORS = {Color.WHITE, Color.BLUE, Color.YELLOW};
+
+    private final static int POINTS_PER_TILE = 8;
+    /**
+     * top and four sides, two triangles each, the bottom is never seen
+     */
+    private final static int FACES_PER_TILE = 10;
+    /**
+     * point and texture coordinate index per corner
+     */
+    private final static int FACE_SIZE = 6;
+
+    /**
+     * corners of the triangles relative to the first point of a tile, the top corners are 0 to 3 clockwise, the
+     * bottom corner below top corner i is i + 4
+     */
+    private final static int[] TRIANGLES = {
+            0, 1, 2, 0, 2, 3,
+            0, 1, 5, 0, 5, 4,
+            1, 2, 6, 1, 6, 5,
+            2, 3, 7, 2, 7, 6,
+            3, 0, 4, 3, 4, 7
+    };
+
+    private final Level _level;
+    private final int _chunksX;
+    private final TriangleMesh[] _meshes;
+    private final MeshView[] _views;
+    private final boolean[] _switchActive;
+
+    double tileX(int x) {
+        return TILE_SIZE * x - (_level.getWidth() - 1) * TILE_SIZE / 2;
+    }
+
+    double tileY(int y) {
+        return TILE_SIZE * y - (_level.getHeight() - 1) * TILE_SIZE / 2;
+    }
+
+    /**
+     * z coordinate of the top of a tile, the camera looks along positive z
+     */
+    double topZ(int x, int y) {
+        return -(20 + _level.heightAt(x, y) * TILE_DEPTH);
+    }
+
+    private int chunkIndex(int x, int y) {
+        return (y / CHUNK) * _chunksX + x / CHUNK;
+    }
+
+    /**
+     * index of the tile within its chunk
+     */
+    private int chunkTile(int x, int y) {
+        int chunkWidth = Math.min(CHUNK, _level.getWidth() - x / CHUNK * CHUNK);
+
+        return (y % CHUNK) * chunkWidth + x % CHUNK;
+    }
+
+    private int color(int x, int y) {
+        if (!_level.isSwitch(x, y)) return COLOR_PLAIN;
+
+        return _switchActive[y * _level.getWidth() + x] ? COLOR_SWITCH_ACTIVE : COLOR_SWITCH;
+    }
+
+    private void writeFaces(@Nonnull int[] faces, int offset, int firstPoint, int color) {
+        for (int i = 0; i < TRIANGLES.length; i++) {
+            faces[offset + i * 2] = firstPoint + TRIANGLES[i];
+            faces[offset + i * 2 + 1] = color;
+        }
+    }
+
+    /**
+     * Flips the color of a switch tile between inactive and active.
+     *
+     * @param x     x coordinate
+     * @param y     y coordinate
+     */
+    void toggleSwitch(int x, int y) {
+        int index = y * _level.getWidth() + x;
+
+        _switchActive[index] = !_switchActive[index];
+
+        int tile = chunkTile(x, y);
+        int[] faces = new int[FACES_PER_TILE * FACE_SIZE];
+
+        writeFaces(faces, 0, tile * POINTS_PER_TILE, color(x, y));
+
+        // only the faces of this tile are uploaded again
+        _meshes[chunkIndex(x, y)].getFaces().set(tile * faces.length, faces, 0, faces.length);
+    }
+
+    @Nonnull
+    private TriangleMesh buildChunk(int x0, int y0, int x1, int y1) {
+        int tileCount = (x1 - x0) * (y1 - y0);
+        float[] points = new float[tileCount * POINTS_PER_TILE * 3];
+        int[] faces = new int[tileCount * FACES_PER_TILE * FACE_SIZE];
+        float half = (TILE_SIZE - 3) / 2F;
+        int tile = 0;
+
+        for (int y = y0; y < y1; y++) {
+            for (int x = x0; x < x1; x++, tile++) {
+                float centerX = (float) tileX(x);
+                float centerY = (float) tileY(y);
+                float top = (float) topZ(x, y);
+                int offset = tile * POINTS_PER_TILE * 3;
+
+                for (int corner = 0; corner < POINTS_PER_TILE; corner++) {
+                    // clockwise from the top left
+                    int i = corner & 3;
+
+                    points[offset + corner * 3] = i == 0 || i == 3 ? centerX - half : centerX + half;
+                    points[offset + corner * 3 + 1] = i < 2 ? centerY - half : centerY + half;
+                    points[offset + corner * 3 + 2] = corner < 4 ? top : 0F;
+                }
+
+                writeFaces(faces, tile * FACES_PER_TILE * FACE_SIZE, tile * POINTS_PER_TILE, color(x, y));
+            }
+        }
+
+        TriangleMesh mesh = new TriangleMesh();
+
+        mesh.getPoints().setAll(points);
+        mesh.getTexCoords().setAll(texCoords());
+        mesh.getFaces().setAll(faces);
+        // smoothing group 0 shades every face flat, as the boxes did
+        mesh.getFaceSmoothingGroups().setAll(new int[tileCount * FACES_PER_TILE]);
+
+        return mesh;
+    }
+
+    /**
+     * centers of the color pixels
+     */
+    @Nonnull
+    private static float[] texCoords() {
+        float[] texCoords = new float[COLORS.length * 2];
+
+        for (int i = 0; i < COLORS.length; i++) {
+            texCoords[i * 2] = (i + 0.5F) / COLORS.length;
+            texCoords[i * 2 + 1] = 0.5F;
+        }
+
+        return texCoords;
+    }
+
+    @Nonnull
+    private static PhongMaterial material() {
+        WritableImage palette = new WritableImage(COLORS.length, 1);
+        PixelWriter writer = palette.getPixelWriter();
+
+        for (int i = 0; i < COLORS.length; i++) writer.setColor(i, 0, COLORS[i]);
+
+        PhongMaterial material = new PhongMaterial();
+
+        material.setDiffuseMap(palette);
+
+        return material;
+    }
+
+    /**
+     * Hides the chunks that lie completely outside the view volume of the camera, which must be part of the same
+     * scene.
+     *
+     * @param camera        perspective camera with its eye at its origin, looking along positive z
+     * @param aspect        width divided by height of the view
+     */
+    void cull(@Nonnull PerspectiveCamera camera, double aspect) {
+        double tan = Math.tan(Math.toRadians(camera.getFieldOfView() / 2D));
+        double tanX = camera.isVerticalFieldOfView() ? tan * aspect : tan;
+        double tanY = camera.isVerticalFieldOfView() ? tan : tan / aspect;
+
+        for (MeshView view : _views) {
+            Bounds bounds = view.localToScene(view.getBoundsInLocal());
+            // bit set per side of the view volume all corners are beyond
+            int outside = 0x1F;
+
+            for (int corner = 0; corner < 8; corner++) {
+                Point3D p = camera.sceneToLocal((corner & 1) == 0 ? bounds.getMinX() : bounds.getMaxX(), (corner & 2) == 0 ? bounds.getMinY() : bounds.getMaxY(), (corner & 4) == 0 ? bounds.getMinZ() : bounds.getMaxZ());
+
+                int code = 0;
+
+                if (p.getZ() < camera.getNearClip()) code |= 1;
+                if (p.getX() < -tanX * p.getZ()) code |= 2;
+                if (p.getX() > tanX * p.getZ()) code |= 4;
+                if (p.getY() < -tanY * p.getZ()) code |= 8;
+                if (p.getY() > tanY * p.getZ()) code |= 16;
+
+                outside &= code;
+            }
+
+            view.setVisible(outside == 0);
+        }
+    }
+
+    LevelChunks(@Nonnull Level level) {
+        _level = level;
+        _chunksX = (level.getWidth() + CHUNK - 1) / CHUNK;
+        _switchActive = new boolean[level.getWidth() * level.getHeight()];
+
+        int chunksY = (level.getHeight() + CHUNK - 1) / CHUNK;
+
+        _meshes = new TriangleMesh[_chunksX * chunksY];
+        _views = new MeshView[_meshes.length];
+
+        PhongMaterial material = material();
+
+        for (int chunkY = 0; chunkY < chunksY; chunkY++) {
+            for (int chunkX = 0; chunkX < _chunksX; chunkX++) {
+                int index = chunkY * _chunksX + chunkX;
+
+                _meshes[index] = buildChunk(chunkX * CHUNK, chunkY * CHUNK, Math.min(level.getWidth(), (chunkX + 1) * CHUNK), Math.min(level.getHeight(), (chunkY + 1) * CHUNK));
+
+                MeshView view = new MeshView(_meshes[index]);
+
+                view.setMaterial(material);
+                // the boxes are closed, but the winding is not worth relying on for a debugging view
+                view.setCullFace(CullFace.NONE);
+
+                _views[index] = view;
+            }
+        }
+
+        getChildren().addAll(_views);
+    }
+}
@@ -1,14 +1,29 @@
 package misc;
 
+import core.RobotAction;
 import core.RobotAlgo;
+import core.RobotAlgoFormatException;
+import core.RobotAlgoParser;
 import org.testng.Assert;
 import org.testng.annotations.Test;
 
+import javax.annotation.Nonnull;
 import java.io.File;
 import java.io.IOException;
 import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 
 public class AlgoTest {
+    @Nonnull
+    private static String keys(@Nonnull RobotAlgo.Group group) {
+        StringBuilder sb = new StringBuilder();
+
+        for (RobotAction action : group.getActions()) sb.append(action.getType().getKey());
+
+        return sb.toString();
+    }
+
     @Test()
     public void Test() throws IOException {
         String pathS = "RobotAlgos/ExampleAlgo.txt";
@@ -20,5 +35,120 @@ public class AlgoTest {
         RobotAlgo algo = new RobotAlgo(new File(url.getFile()));
 
         Assert.assertEquals(algo.getAssociatedLevelName(), "Level 2");
+        Assert.assertEquals(keys(algo.getMainGroup()), "lmrm12");
+        Assert.assertEquals(keys(algo.getF1Group()), "mmm");
+        Assert.assertEquals(keys(algo.getF2Group()), "rms");
+    }
+
+    @Test()
+    public void TestParse() {
+        RobotAlgo algo = RobotAlgoParser.parse("\r\nLevel \u00e4\r\n  main:\tl  m\r\n\r\nf2:\nmain: s 1\n");
+
+        Assert.assertEquals(algo.getAssociatedLevelName(), "Level \u00e4");
+        Assert.assertEquals(keys(algo.getMainGroup()), "lms1");
+        Assert.assertEquals(keys(algo.getF1Group()), "");
+        Assert.assertEquals(keys(algo.getF2Group()), "");
+    }
+
+    @Test()
+    public void TestRecords() {
+        byte[] bytes = "Level 1\nmain: m\n\nLevel \u00e4\nmain: l 1\nf1: j\nLevel 3\n".getBytes(StandardCharsets.UTF_8);
+
+        RobotAlgoParser parser = new RobotAlgoParser(ByteBuffer.wrap(bytes));
+
+        Assert.assertTrue(parser.hasNext());
+
+        RobotAlgo first = parser.next();
+
+        Assert.assertEquals(first.getAssociatedLevelName(), "Level 1");
+        Assert.assertEquals(keys(first.getMainGroup()), "m");
+
+        RobotAlgo second = parser.next();
+
+        Assert.assertEquals(second.getAssociatedLevelName(), "Level \u00e4");
+        Assert.assertEquals(keys(second.getMainGroup()), "l1");
+        Assert.assertEquals(keys(second.getF1Group()), "j");
+
+        RobotAlgo third = parser.next();
+
+        Assert.assertEquals(third.getAssociatedLevelName(), "Level 3");
+        Assert.assertEquals(third.getMainGroup().getActions().size(), 0);
+
+        Assert.assertFalse(parser.hasNext());
+    }
+
+    @Test()
+    public void TestFlyweights() {
+        RobotAlgo algo = new RobotAlgo(new String[]{"m", "m", "l"}, new String[0], new String[0]);
+        RobotAlgo.Group group = algo.getMainGroup();
+
+        Assert.assertSame(group.getActions().get(0), group.getActions().get(1));
+        Assert.assertSame(group.getActions().get(0), RobotAction.of(RobotAction.Type.MOVE));
+        Assert.assertSame(RobotAction.of("2"), RobotAction.of(RobotAction.Type.F2));
+        Assert.assertSame(RobotAction.Type.forKey('j'), RobotAction.Type.JUMP);
+        Assert.assertNull(RobotAction.Type.forKey('x'));
+        Assert.assertNull(RobotAction.Type.forKey('\u00e4'));
+
+        group.getActions().add(RobotAction.of(RobotAction.Type.F1));
+        group.getActions().add(0, RobotAction.of(RobotAction.Type.SWITCH));
+        group.getActions().set(2, RobotAction.of(RobotAction.Type.JUMP));
+        group.getActions().remove(3);
+
+        Assert.assertEquals(keys(group), "smj1");
+        Assert.assertEquals(group.size(), 4);
+        Assert.assertEquals(group.getType(3), RobotAction.Type.F1);
+
+        for (int i = 0; i < 100; i++) group.getActions().add(RobotAction.of(RobotAction.Type.ROTATE_RIGHT));
+
+        Assert.assertEquals(group.size(), 104);
+
+        group.getActions().clear();
+
+        Assert.assertEquals(keys(group), "");
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void TestInvalidAction() {
+        RobotAction.of("mm");
+    }
+
+    private static void assertError(@Nonnull String text, int line, int column) {
+        try {
+            RobotAlgoParser.parse(text);
+        } catch (RobotAlgoFormatException e) {
+            Assert.assertEquals(e.getLine(), line, e.getMessage());
+            Assert.assertEquals(e.getColumn(), column, e.getMessage());
+
+            return;
+        }
+
+        Assert.fail("no error in " + text);
+    }
+
+    @Test()
+    public void TestErrors() {
+        assertError("Level 1\nmain: l x m\n", 2, 9);
+        assertError("Level 1\nmain: l mm\n", 2, 9);
+        assertError("Level 1\n\n  f3: l\n", 3, 3);
+        assertError("Level 1\nmain: l\nLevel 2\n", 3, 1);
+    }
+
+    @Test()
+    public void TestColonInLevelName() {
+        RobotAlgoParser parser = new RobotAlgoParser("Stage:1\nmain: m\nf1: l\nmain2: 1\nf2:s\n");
+
+        RobotAlgo first = parser.next();
+
+        Assert.assertEquals(first.getAssociatedLevelName(), "Stage:1");
+        Assert.assertEquals(keys(first.getMainGroup()), "m");
+        Assert.assertEquals(keys(first.getF1Group()), "l");
+
+        // only main, f1 and f2 make group lines
+        RobotAlgo second = parser.next();
+
+        Assert.assertEquals(second.getAssociatedLevelName(), "main2: 1");
+        Assert.assertEquals(keys(second.getF2Group()), "s");
+
+        Assert.assertFalse(parser.hasNext());
     }
 }
@@ -0,0 +1,137 @@
+package misc;
+
+import core.BinaryFormat;
+import core.Level;
+import core.LevelRun;
+import core.Position;
+import core.RobotAction;
+import core.RobotAlgo;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import javax.annotation.Nonnull;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Random;
+
+public class BinaryFormatTest {
+    private static void assertLevelEquals(@Nonnull Level actual, @Nonnull Level expected) {
+        Assert.assertEquals(actual.getName(), expected.getName());
+        Assert.assertEquals(actual.getWidth(), expected.getWidth());
+        Assert.assertEquals(actual.getHeight(), expected.getHeight());
+        Assert.assertEquals(actual.getStartPos(), expected.getStartPos());
+        Assert.assertEquals(actual.getStartDir(), expected.getStartDir());
+
+        for (int y = 0; y < expected.getHeight(); y++) {
+            for (int x = 0; x < expected.getWidth(); x++) {
+                Assert.assertEquals(actual.heightAt(x, y), expected.heightAt(x, y), "height at " + x + "/" + y);
+                Assert.assertEquals(actual.isSwitch(x, y), expected.isSwitch(x, y), "switch at " + x + "/" + y);
+            }
+        }
+    }
+
+    @Nonnull
+    private static Level randomLevel(@Nonnull Random random, int width, int height, int minHeight, int range) {
+        return LevelFixtures.randomLevel(random, "Level \u00e4 " + width + "x" + height, width, height, minHeight, range, 5, new Position(width - 1, height / 2), LevelRun.DIR_UP);
+    }
+
+    @Nonnull
+    private static String keys(@Nonnull RobotAlgo.Group group) {
+        StringBuilder sb = new StringBuilder();
+
+        for (RobotAction action : group.getActions()) sb.append(action.getType().getKey());
+
+        return sb.toString();
+    }
+
+    @Test()
+    public void TestLevelRoundtrip() throws IOException {
+        Random random = new Random(13);
+        Level[] levels = {
+                randomLevel(random, 1, 1, 0, 0),
+                randomLevel(random, 5, 3, -2, 0),
+                randomLevel(random, 7, 9, -3, 6),
+                randomLevel(random, 33, 17, 100, 1000),
+                randomLevel(random, 12, 12, Short.MIN_VALUE, 65535)
+        };
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+
+        for (Level level : levels) BinaryFormat.writeLevel(out, level);
+
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+
+        for (Level level : levels) assertLevelEquals(BinaryFormat.readLevel(in), level);
+
+        Assert.assertEquals(in.available(), 0);
+
+        // 7x9 tiles at 3 bits fit into a single long
+        ByteArrayOutputStream single = new ByteArrayOutputStream();
+
+        BinaryFormat.writeLevel(new DataOutputStream(single), levels[2]);
+
+        Assert.assertTrue(single.size() < 80, "record size " + single.size());
+    }
+
+    @Test()
+    public void TestAlgoRoundtrip() throws IOException {
+        RobotAlgo named = new RobotAlgo(new String[] {"l", "m", "r", "m", "1", "2", "j", "s", "m"}, new String[] {"m", "m", "m"}, new String[0]);
+        RobotAlgo unnamed = new RobotAlgo(new String[] {"2"}, new String[] {"s"}, new String[] {"j", "l"});
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+
+        BinaryFormat.writeAlgo(out, named);
+        BinaryFormat.writeAlgo(out, unnamed);
+
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+
+        RobotAlgo first = BinaryFormat.readAlgo(in);
+
+        Assert.assertNull(first.getAssociatedLevelName());
+        Assert.assertEquals(keys(first.getMainGroup()), "lmrm12jsm");
+        Assert.assertEquals(keys(first.getF1Group()), "mmm");
+        Assert.assertEquals(keys(first.getF2Group()), "");
+
+        RobotAlgo second = BinaryFormat.readAlgo(in);
+
+        Assert.assertEquals(keys(second.getMainGroup()), "2");
+        Assert.assertEquals(keys(second.getF1Group()), "s");
+        Assert.assertEquals(keys(second.getF2Group()), "jl");
+
+        Assert.assertEquals(in.available(), 0);
+    }
+
+    @Test()
+    public void TestSkipRecord() throws IOException {
+        Level level = randomLevel(new Random(1), 4, 4, 0, 3);
+        RobotAlgo algo = new RobotAlgo(new String[] {"m"}, new String[0], new String[0]);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+
+        BinaryFormat.writeLevel(out, level);
+        BinaryFormat.writeAlgo(out, algo);
+        BinaryFormat.writeLevel(out, level);
+
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+
+        Assert.assertEquals(BinaryFormat.skipRecord(in), BinaryFormat.LEVEL_MAGIC);
+        Assert.assertEquals(BinaryFormat.skipRecord(in), BinaryFormat.ALGO_MAGIC);
+
+        assertLevelEquals(BinaryFormat.readLevel(in), level);
+    }
+
+    @Test(expectedExceptions = IOException.class)
+    public void TestWrongMagic() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        BinaryFormat.writeAlgo(new DataOutputStream(bytes), new RobotAlgo());
+
+        BinaryFormat.readLevel(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+    }
+}
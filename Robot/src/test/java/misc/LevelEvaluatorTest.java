@@ -0,0 +1,79 @@
+package misc;
+
+import core.Level;
+import core.LevelEvaluator;
+import core.LevelRun;
+import core.Position;
+import core.RobotAlgo;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+import util.Matrix;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+public class LevelEvaluatorTest {
+    @Test()
+    public void TestEvaluateAll() {
+        Boolean[][] switchMap = Matrix.transpose(new Boolean[][] {
+                {false, false, false, false, false},
+                {false, false, false, false, false},
+                {false, false, false, false, true},
+                {false, false, false, false, false},
+                {false, false, false, false, false}
+        });
+
+        Integer[][] heightMap = Matrix.transpose(new Integer[][] {
+                {0, 0, 0, 0, 0},
+                {0, 0, 0, 0, 0},
+                {0, 0, 0, 0, 0},
+                {0, 0, 0, 0, 0},
+                {0, 0, 0, 0, 0}
+        });
+
+        Level level = new Level(getClass().getSimpleName(), switchMap, heightMap, new Position(0, 2), LevelRun.DIR_RIGHT);
+
+        RobotAlgo solving = new RobotAlgo(new String[]{"1", "m", "s"}, new String[]{"m", "m", "m"}, new String[0]);
+        RobotAlgo failing = new RobotAlgo(new String[]{"m", "s"}, new String[0], new String[0]);
+        RobotAlgo looping = new RobotAlgo(new String[]{"1"}, new String[]{"m", "1"}, new String[0]);
+
+        List<RobotAlgo> algos = new ArrayList<>();
+
+        for (int i = 0; i < 1000; i++) {
+            algos.add(i % 3 == 0 ? solving : i % 3 == 1 ? failing : looping);
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(4);
+
+        try {
+            List<LevelEvaluator.Evaluation> evaluations = new LevelEvaluator(pool, 100, LevelRun.DEFAULT_MAX_DEPTH).evaluateAll(level, algos);
+
+            Assert.assertEquals(evaluations.size(), algos.size());
+
+            for (int i = 0; i < algos.size(); i++) {
+                LevelEvaluator.Evaluation evaluation = evaluations.get(i);
+
+                Assert.assertSame(evaluation.getAlgo(), algos.get(i));
+
+                switch (i % 3) {
+                    case 0:
+                        Assert.assertTrue(evaluation.isSuccess());
+                        Assert.assertEquals(evaluation.getSteps(), 6);
+                        Assert.assertEquals(evaluation.getRemainingSwitches(), 0);
+
+                        break;
+                    case 1:
+                        Assert.assertEquals(evaluation.getResult(), LevelRun.Result.UNSOLVED);
+                        Assert.assertEquals(evaluation.getRemainingSwitches(), 1);
+
+                        break;
+                    default:
+                        Assert.assertEquals(evaluation.getResult(), LevelRun.Result.LOOP);
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package misc;
+
+import core.Level;
+import core.Position;
+
+import javax.annotation.Nonnull;
+import java.util.BitSet;
+import java.util.Random;
+
+/**
+ * Levels shared by the tests.
+ */
+class LevelFixtures {
+    /**
+     * Level of random terrain. The height and switch of each tile are drawn in row order, so the same seed yields the
+     * same level.
+     *
+     * @param random        source of the terrain
+     * @param name          level name
+     * @param width         amount of columns
+     * @param height        amount of rows
+     * @param minHeight     lowest tile height
+     * @param heightRange   tile heights are drawn from <code>minHeight</code> to <code>minHeight + heightRange</code>
+     * @param switchOdds    one in this many tiles is a switch
+     * @param startPos      start position
+     * @param startDir      start direction
+     * @return              level
+     */
+    @Nonnull
+    static Level randomLevel(@Nonnull Random random, @Nonnull String name, int width, int height, int minHeight, int heightRange, int switchOdds, @Nonnull Position startPos, int startDir) {
+        short[] heights = new short[width * height];
+        BitSet switches = new BitSet();
+
+        for (int i = 0; i < heights.length; i++) {
+            heights[i] = (short) (minHeight + random.nextInt(heightRange + 1));
+
+            if (random.nextInt(switchOdds) == 0) switches.set(i);
+        }
+
+        return new Level(name, width, height, switches, heights, startPos, startDir);
+    }
+}
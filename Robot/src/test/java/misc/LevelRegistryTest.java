@@ -0,0 +1,141 @@
+package misc;
+
+import core.BinaryFormat;
+import core.Level;
+import core.LevelRegistry;
+import core.LevelRun;
+import core.Position;
+import core.RobotAlgo;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import javax.annotation.Nonnull;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.ArrayList;
+import java.util.List;
+
+public class LevelRegistryTest {
+    @Nonnull
+    private static Level level(@Nonnull String name, int size, @Nonnull Random random) {
+        return LevelFixtures.randomLevel(random, name, size, size, 0, 4, 7, new Position(0, 0), LevelRun.DIR_DOWN);
+    }
+
+    @Nonnull
+    private static File pack(@Nonnull Level... levels) throws IOException {
+        File file = File.createTempFile("levels", ".pack");
+
+        file.deleteOnExit();
+
+        try (DataOutputStream out = new DataOutputStream(new FileOutputStream(file))) {
+            for (Level level : levels) {
+                BinaryFormat.writeLevel(out, level);
+                BinaryFormat.writeAlgo(out, new RobotAlgo(new String[]{"m", "s"}, new String[0], new String[0]));
+            }
+        }
+
+        return file;
+    }
+
+    private static void assertSameLevel(@Nonnull Level actual, @Nonnull Level expected) {
+        Assert.assertEquals(actual.getName(), expected.getName());
+        Assert.assertEquals(actual.getWidth(), expected.getWidth());
+        Assert.assertEquals(actual.getSwitchCount(), expected.getSwitchCount());
+
+        for (int y = 0; y < expected.getHeight(); y++) {
+            for (int x = 0; x < expected.getWidth(); x++) {
+                Assert.assertEquals(actual.heightAt(x, y), expected.heightAt(x, y));
+                Assert.assertEquals(actual.isSwitch(x, y), expected.isSwitch(x, y));
+            }
+        }
+    }
+
+    @Test()
+    public void TestLookup() throws IOException {
+        Random random = new Random(25);
+        Level[] levels = {level("\u00c4rger", 3, random), level("B", 40, random), level("C", 7, random)};
+
+        LevelRegistry registry = new LevelRegistry();
+
+        Assert.assertEquals(registry.addPack(pack(levels)), 3);
+        Assert.assertEquals(registry.addPack(pack(level("D", 2, random))), 1);
+        Assert.assertEquals(registry.getNames().size(), 4);
+        Assert.assertTrue(registry.contains("C"));
+        Assert.assertNull(registry.get("E"));
+
+        for (Level level : levels) assertSameLevel(registry.get(level.getName()), level);
+
+        // cached
+        Assert.assertSame(registry.get("B"), registry.get("B"));
+        Assert.assertEquals(registry.getMissCount(), 3);
+        Assert.assertEquals(registry.getHitCount(), 2);
+
+        try {
+            registry.addPack(pack(level("C", 1, random)));
+
+            Assert.fail("duplicate level indexed");
+        } catch (IOException e) {
+            // expected
+        }
+    }
+
+    @Test()
+    public void TestEviction() throws IOException {
+        Random random = new Random(25);
+        // each level weighs about 3.3 KB, two of them fit
+        LevelRegistry registry = new LevelRegistry(7000);
+
+        registry.addPack(pack(level("A", 20, random), level("B", 20, random), level("C", 20, random)));
+
+        Level a = registry.get("A");
+
+        registry.get("B");
+        // touch A, so B is the least recently used one
+        Assert.assertSame(registry.get("A"), a);
+
+        registry.get("C");
+
+        Assert.assertTrue(registry.getWeight() <= 7000, "weight " + registry.getWeight());
+        Assert.assertSame(registry.get("A"), a);
+
+        long misses = registry.getMissCount();
+
+        registry.get("B");
+
+        Assert.assertEquals(registry.getMissCount(), misses + 1);
+    }
+
+    @Test()
+    public void TestConcurrentLoad() throws Exception {
+        Random random = new Random(25);
+        LevelRegistry registry = new LevelRegistry();
+
+        registry.addPack(pack(level("A", 300, random), level("B", 300, random)));
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+
+        try {
+            List<Future<Level>> futures = new ArrayList<>();
+
+            for (int i = 0; i < 64; i++) {
+                String name = i % 2 == 0 ? "A" : "B";
+
+                futures.add(executor.submit(() -> registry.get(name)));
+            }
+
+            for (int i = 0; i < futures.size(); i++) Assert.assertSame(futures.get(i).get(), futures.get(i % 2).get());
+        } finally {
+            executor.shutdown();
+        }
+
+        // every level was read once, all other requests shared the load
+        Assert.assertEquals(registry.getMissCount(), 2);
+        Assert.assertEquals(registry.getHitCount(), 62);
+    }
+}
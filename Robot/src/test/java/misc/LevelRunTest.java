@@ -1,16 +1,27 @@
 package misc;
 
+import core.CountingActionHandler;
 import core.Level;
 import core.LevelRun;
+import core.Position;
+import core.RobotProgram;
 import core.RobotAlgo;
-import javafx.util.Pair;
 import org.testng.Assert;
+import org.testng.SkipException;
 import org.testng.annotations.Test;
 import util.Matrix;
 
+import javax.annotation.Nonnull;
 import java.io.File;
 import java.io.IOException;
+import java.lang.management.ManagementFactory;
 import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
 
 public class LevelRunTest {
     @Test()
@@ -31,7 +42,7 @@ public class LevelRunTest {
                 {0, 1, 0, 0, 0}
         });
 
-        Level level = new Level(getClass().getSimpleName(), switchMap, heightMap, new Pair<>(0, 2), LevelRun.DIR_RIGHT);
+        Level level = new Level(getClass().getSimpleName(), switchMap, heightMap, new Position(0, 2), LevelRun.DIR_RIGHT);
 
         RobotAlgo algo = new RobotAlgo(new String[]{"l", "m", "r", "j", "1", "2"}, new String[]{"j", "m", "m"}, new String[]{"r", "m", "s"});
 
@@ -97,7 +108,7 @@ public class LevelRunTest {
                 {0, 0, 0, 0, 0}
         });
 
-        Level level = new Level(algo.getAssociatedLevelName(), switchMap, heightMap, new Pair<>(0, 2), LevelRun.DIR_RIGHT);
+        Level level = new Level(algo.getAssociatedLevelName(), switchMap, heightMap, new Position(0, 2), LevelRun.DIR_RIGHT);
 
         LevelRun levelRun = new LevelRun(level, algo, new LevelRun.ActionHandler() {
             @Override
@@ -123,4 +134,309 @@ public class LevelRunTest {
 
         levelRun.exec();
     }
+
+    @Test()
+    public void TestAllocationFree() {
+        java.lang.management.ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+
+        if (!(threadBean instanceof com.sun.management.ThreadMXBean)) throw new SkipException("thread allocation counting not supported");
+
+        com.sun.management.ThreadMXBean allocBean = (com.sun.management.ThreadMXBean) threadBean;
+
+        if (!allocBean.isThreadAllocatedMemorySupported() || !allocBean.isThreadAllocatedMemoryEnabled()) throw new SkipException("thread allocation counting not enabled");
+
+        Boolean[][] switchMap = new Boolean[][] {{true}, {false}, {false}};
+        Integer[][] heightMap = new Integer[][] {{0}, {0}, {1}};
+
+        Level level = new Level(getClass().getSimpleName(), switchMap, heightMap, new Position(0, 0), LevelRun.DIR_RIGHT);
+
+        // walks, jumps up, jumps down, walks back and toggles the switch; ends where it started
+        String[] pattern = new String[] {"m", "j", "l", "l", "j", "m", "l", "l", "s"};
+        int repeats = 20000;
+
+        List<String> mainActions = new ArrayList<>();
+
+        for (int i = 0; i < repeats; i++) {
+            mainActions.addAll(Arrays.asList(pattern));
+            mainActions.add("1");
+        }
+
+        mainActions.add("s");
+
+        RobotAlgo algo = new RobotAlgo(mainActions.toArray(new String[0]), pattern, new String[0]);
+
+        long[] actionCount = {0};
+        LevelRun.ActionHandler handler = countingHandler(actionCount);
+
+        // warm up
+        for (int i = 0; i < 5; i++) {
+            new LevelRun(level, algo, handler).exec();
+        }
+
+        LevelRun levelRun = new LevelRun(level, algo, handler);
+
+        actionCount[0] = 0;
+
+        long threadId = Thread.currentThread().getId();
+        long allocatedBefore = allocBean.getThreadAllocatedBytes(threadId);
+
+        levelRun.exec();
+
+        long allocated = allocBean.getThreadAllocatedBytes(threadId) - allocatedBefore;
+
+        Assert.assertEquals(actionCount[0], (long) repeats * (2 * pattern.length + 1) + 1);
+        Assert.assertEquals(levelRun.getCurX(), 0);
+        Assert.assertEquals(levelRun.getDir(), LevelRun.DIR_RIGHT);
+        Assert.assertEquals(levelRun.getResult(), LevelRun.Result.SOLVED);
+
+        // the call stack of the run and the allocation counter itself take a few bytes, executed actions nothing
+        Assert.assertTrue(allocated < 4096, allocated + " bytes allocated during " + actionCount[0] + " actions");
+    }
+
+    private static LevelRun.ActionHandler countingHandler(@Nonnull long[] actionCount) {
+        return new LevelRun.ActionHandler() {
+            @Override
+            public void result(boolean success) {
+            }
+
+            @Override
+            public void action() {
+                actionCount[0]++;
+            }
+
+            @Override
+            public void turn(int newDir, int oldDir) {
+            }
+
+            @Override
+            public void move(int newX, int newY, int oldX, int oldY) {
+            }
+
+            @Override
+            public void useSwitch(int x, int y) {
+            }
+        };
+    }
+
+    private Level flatLevel() {
+        return new Level(getClass().getSimpleName(), new Boolean[][] {{false}, {true}, {false}}, new Integer[][] {{0}, {0}, {0}}, new Position(0, 0), LevelRun.DIR_RIGHT);
+    }
+
+    @Test()
+    public void TestLoop() {
+        long[] actionCount = {0};
+
+        RobotAlgo algo = new RobotAlgo(new String[]{"2"}, new String[]{"m", "2"}, new String[]{"l", "1"});
+
+        LevelRun levelRun = new LevelRun(flatLevel(), algo, countingHandler(actionCount));
+
+        Assert.assertEquals(levelRun.exec(), LevelRun.Result.LOOP);
+        Assert.assertEquals(levelRun.getSteps(), 0);
+        Assert.assertEquals(actionCount[0], 0);
+    }
+
+    @Test()
+    public void TestTimeout() {
+        long[] actionCount = {0};
+
+        RobotAlgo algo = new RobotAlgo(new String[]{"m", "s", "1"}, new String[]{"l", "l"}, new String[0]);
+
+        LevelRun levelRun = new LevelRun(flatLevel(), algo, countingHandler(actionCount));
+
+        Assert.assertEquals(levelRun.exec(3, LevelRun.DEFAULT_MAX_DEPTH), LevelRun.Result.TIMEOUT);
+        Assert.assertEquals(levelRun.getSteps(), 3);
+        Assert.assertEquals(levelRun.getResult(), LevelRun.Result.TIMEOUT);
+
+        LevelRun fullRun = new LevelRun(flatLevel(), algo, countingHandler(actionCount));
+
+        Assert.assertEquals(fullRun.exec(5, LevelRun.DEFAULT_MAX_DEPTH), LevelRun.Result.SOLVED);
+        Assert.assertEquals(fullRun.getSteps(), 5);
+    }
+
+    @Test()
+    public void TestOverflow() {
+        long[] actionCount = {0};
+
+        RobotAlgo algo = new RobotAlgo(new String[]{"m", "2"}, new String[]{"s"}, new String[]{"1"});
+
+        LevelRun levelRun = new LevelRun(flatLevel(), algo, countingHandler(actionCount));
+
+        Assert.assertEquals(levelRun.exec(LevelRun.UNLIMITED_STEPS, 1), LevelRun.Result.OVERFLOW);
+
+        LevelRun deepRun = new LevelRun(flatLevel(), algo, countingHandler(actionCount));
+
+        Assert.assertEquals(deepRun.exec(LevelRun.UNLIMITED_STEPS, 2), LevelRun.Result.SOLVED);
+    }
+
+    @Test()
+    public void TestSwitchState() {
+        Level level = new Level(getClass().getSimpleName(), new Boolean[][] {{true}, {true}, {false}}, new Integer[][] {{0}, {0}, {0}}, new Position(0, 0), LevelRun.DIR_RIGHT);
+
+        long[] actionCount = {0};
+
+        LevelRun initialRun = new LevelRun(level, new RobotAlgo(new String[0], new String[0], new String[0]), countingHandler(actionCount));
+
+        Assert.assertEquals(initialRun.getRemainingSwitchCount(), 2);
+        Assert.assertTrue(initialRun.isSwitchRemaining(0, 0));
+        Assert.assertTrue(initialRun.isSwitchRemaining(1, 0));
+        Assert.assertFalse(initialRun.isSwitchRemaining(2, 0));
+        Assert.assertEquals(initialRun.getRemainingSwitches().size(), 2);
+
+        LevelRun halfRun = new LevelRun(level, new RobotAlgo(new String[]{"s", "m", "s", "s"}, new String[0], new String[0]), countingHandler(actionCount));
+
+        Assert.assertEquals(halfRun.exec(), LevelRun.Result.UNSOLVED);
+        Assert.assertEquals(halfRun.getRemainingSwitchCount(), 1);
+        Assert.assertFalse(halfRun.isSwitchRemaining(0, 0));
+        Assert.assertTrue(halfRun.isSwitchRemaining(1, 0));
+        Assert.assertEquals(halfRun.getSwitchState(), new long[] {2L});
+        Assert.assertEquals(halfRun.getRemainingSwitches(), Collections.singleton(new Position(1, 0)));
+
+        LevelRun otherHalfRun = new LevelRun(level, new RobotAlgo(new String[]{"m", "s", "s", "l", "l", "m", "s"}, new String[0], new String[0]), countingHandler(actionCount));
+
+        otherHalfRun.exec();
+
+        Assert.assertEquals(otherHalfRun.getSwitchStateHash(), halfRun.getSwitchStateHash());
+        Assert.assertNotEquals(halfRun.getSwitchStateHash(), initialRun.getSwitchStateHash());
+
+        LevelRun solvedRun = new LevelRun(level, new RobotAlgo(new String[]{"s", "m", "s"}, new String[0], new String[0]), countingHandler(actionCount));
+
+        Assert.assertEquals(solvedRun.exec(), LevelRun.Result.SOLVED);
+        Assert.assertEquals(solvedRun.getRemainingSwitchCount(), 0);
+        Assert.assertEquals(solvedRun.getSwitchStateHash(), 0L);
+    }
+
+    @Test()
+    public void TestCountingHandler() {
+        Level level = new Level(getClass().getSimpleName(), new Boolean[][] {{false}, {true}, {false}}, new Integer[][] {{0}, {0}, {2}}, new Position(0, 0), LevelRun.DIR_RIGHT);
+
+        RobotAlgo algo = new RobotAlgo(new String[]{"m", "s", "1", "l", "l", "m"}, new String[]{"m", "j"}, new String[0]);
+
+        CountingActionHandler counter = new CountingActionHandler();
+
+        LevelRun levelRun = new LevelRun(level, algo, counter);
+
+        Assert.assertEquals(levelRun.exec(), LevelRun.Result.SOLVED);
+
+        Assert.assertEquals(counter.getSteps(), levelRun.getSteps());
+        Assert.assertEquals(counter.getMoves(), 2);
+        Assert.assertEquals(counter.getBumps(), 2);
+        Assert.assertEquals(counter.getTurns(), 2);
+        Assert.assertEquals(counter.getSwitches(), 1);
+        Assert.assertEquals(counter.getSuccesses(), 1);
+        Assert.assertEquals(counter.getFailures(), 0);
+    }
+
+    @Test()
+    public void TestCheckpoint() {
+        Level level = new Level(getClass().getSimpleName(), new Boolean[][] {{false, true}, {true, false}, {false, true}}, new Integer[][] {{0, 0}, {0, 1}, {0, 0}}, new Position(0, 0), LevelRun.DIR_RIGHT);
+
+        RobotProgram program = RobotProgram.compile(new RobotAlgo(new String[]{"m", "s", "1", "r", "m", "s"}, new String[]{"m", "r", "m", "s"}, new String[0]));
+        RobotProgram other = RobotProgram.compile(new RobotAlgo(new String[]{"m", "s", "1", "l", "l", "m", "j", "s"}, new String[]{"m", "r", "m", "s"}, new String[0]));
+
+        long[] actionCount = {0};
+
+        LevelRun pausedRun = new LevelRun(level, program, countingHandler(actionCount));
+
+        Assert.assertTrue(pausedRun.advance(3, LevelRun.UNLIMITED_STEPS, LevelRun.DEFAULT_MAX_DEPTH));
+        // m, s, the call and the four actions of function 1
+        Assert.assertEquals(pausedRun.getSteps(), 7);
+        Assert.assertEquals(actionCount[0], 7);
+        Assert.assertEquals(pausedRun.getCurX(), 2);
+        Assert.assertEquals(pausedRun.getCurY(), 1);
+
+        LevelRun.Checkpoint checkpoint = pausedRun.checkpoint();
+
+        Assert.assertEquals(checkpoint.getMainIndex(), 3);
+        Assert.assertEquals(checkpoint.getRemainingSwitchCount(), 1);
+
+        Assert.assertEquals(pausedRun.exec(), LevelRun.Result.UNSOLVED);
+
+        for (RobotProgram resumed : new RobotProgram[] {program, other}) {
+            LevelRun fullRun = new LevelRun(level, resumed);
+            LevelRun resumedRun = new LevelRun(level, resumed, LevelRun.ActionHandler.NONE, checkpoint);
+
+            Assert.assertEquals(resumedRun.exec(), fullRun.exec());
+            Assert.assertEquals(resumedRun.getSteps(), fullRun.getSteps());
+            Assert.assertEquals(resumedRun.getCurX(), fullRun.getCurX());
+            Assert.assertEquals(resumedRun.getCurY(), fullRun.getCurY());
+            Assert.assertEquals(resumedRun.getDir(), fullRun.getDir());
+            Assert.assertEquals(resumedRun.getSwitchStateHash(), fullRun.getSwitchStateHash());
+        }
+
+        LevelRun shortRun = new LevelRun(level, program);
+
+        Assert.assertFalse(shortRun.advance(5, 2, LevelRun.DEFAULT_MAX_DEPTH));
+        Assert.assertEquals(shortRun.getResult(), LevelRun.Result.TIMEOUT);
+    }
+
+    private final static String[] FUSION_ALPHABET = {"m", "m", "m", "m", "l", "r", "r", "j", "s", "1", "2"};
+
+    @Nonnull
+    private static String[] randomGroup(@Nonnull Random random, int size, boolean calls) {
+        String[] group = new String[size];
+
+        for (int i = 0; i < size; i++) group[i] = FUSION_ALPHABET[random.nextInt(FUSION_ALPHABET.length - (calls ? 0 : 2))];
+
+        return group;
+    }
+
+    private static void assertSameRun(@Nonnull LevelRun actual, @Nonnull LevelRun expected) {
+        Assert.assertEquals(actual.getResult(), expected.getResult());
+        Assert.assertEquals(actual.getSteps(), expected.getSteps());
+        Assert.assertEquals(actual.getCurX(), expected.getCurX());
+        Assert.assertEquals(actual.getCurY(), expected.getCurY());
+        Assert.assertEquals(actual.getDir(), expected.getDir());
+        Assert.assertEquals(actual.getSwitchStateHash(), expected.getSwitchStateHash());
+    }
+
+    @Test()
+    public void TestFusionEquivalence() {
+        Random random = new Random(20);
+        int width = 8;
+        int height = 6;
+        short[] heights = new short[width * height];
+        BitSet switches = new BitSet();
+
+        for (int i = 0; i < heights.length; i++) {
+            // mostly flat, so runs of moves get somewhere
+            heights[i] = (short) (random.nextInt(4) == 0 ? random.nextInt(3) : 0);
+
+            if (random.nextInt(5) == 0) switches.set(i);
+        }
+
+        Level level = new Level(getClass().getSimpleName(), width, height, switches, heights, new Position(3, 2), LevelRun.DIR_UP);
+
+        for (int i = 0; i < 300; i++) {
+            RobotProgram program = RobotProgram.compile(new RobotAlgo(randomGroup(random, 30, true), randomGroup(random, 10, false), randomGroup(random, 10, i % 3 == 0)));
+
+            if (!program.isTerminating()) continue;
+
+            long[] actionCount = {0};
+            // any other handler than NONE keeps the exact form
+            LevelRun exactRun = new LevelRun(level, program, countingHandler(actionCount));
+            LevelRun fusedRun = new LevelRun(level, program);
+
+            long maxSteps = random.nextBoolean() ? LevelRun.UNLIMITED_STEPS : random.nextInt(120);
+            int maxDepth = random.nextInt(3);
+
+            exactRun.exec(maxSteps, maxDepth);
+            fusedRun.exec(maxSteps, maxDepth);
+
+            assertSameRun(fusedRun, exactRun);
+
+            // resuming within a fused run of actions falls back to the exact form
+            int mainIndex = random.nextInt(program.getMainLength() + 1);
+            LevelRun pausedRun = new LevelRun(level, program);
+
+            if (!pausedRun.advance(mainIndex, maxSteps, maxDepth)) continue;
+
+            LevelRun resumedRun = new LevelRun(level, program, LevelRun.ActionHandler.NONE, pausedRun.checkpoint());
+
+            resumedRun.exec(maxSteps, maxDepth);
+            pausedRun.exec(maxSteps, maxDepth);
+
+            assertSameRun(resumedRun, exactRun);
+            assertSameRun(pausedRun, exactRun);
+        }
+    }
 }
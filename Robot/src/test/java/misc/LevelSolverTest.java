@@ -0,0 +1,170 @@
+package misc;
+
+import core.Level;
+import core.LevelRun;
+import core.LevelSolver;
+import core.Position;
+import core.RobotAlgo;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+import util.Matrix;
+
+import javax.annotation.Nonnull;
+
+public class LevelSolverTest {
+    private static int length(@Nonnull RobotAlgo algo) {
+        return algo.getMainGroup().getActions().size() + algo.getF1Group().getActions().size() + algo.getF2Group().getActions().size();
+    }
+
+    private static LevelRun.Result run(@Nonnull Level level, @Nonnull RobotAlgo algo) {
+        return new LevelRun(level, algo, new LevelRun.ActionHandler() {
+            @Override
+            public void result(boolean success) {
+            }
+
+            @Override
+            public void action() {
+            }
+
+            @Override
+            public void turn(int newDir, int oldDir) {
+            }
+
+            @Override
+            public void move(int newX, int newY, int oldX, int oldY) {
+            }
+
+            @Override
+            public void useSwitch(int x, int y) {
+            }
+        }).exec();
+    }
+
+    @Test()
+    public void TestShortest() {
+        Boolean[][] switchMap = Matrix.transpose(new Boolean[][] {
+                {false, false, false, false, false},
+                {false, false, false, false, false},
+                {false, false, false, false, true},
+                {false, false, false, false, false},
+                {false, false, false, false, false}
+        });
+
+        Integer[][] heightMap = Matrix.transpose(new Integer[][] {
+                {0, 0, 0, 0, 0},
+                {0, 0, 0, 0, 0},
+                {0, 0, 0, 0, 0},
+                {0, 0, 0, 0, 0},
+                {0, 0, 0, 0, 0}
+        });
+
+        Level level = new Level(getClass().getSimpleName(), switchMap, heightMap, new Position(0, 2), LevelRun.DIR_RIGHT);
+
+        RobotAlgo algo = new LevelSolver(8, 4, 4).solve(level);
+
+        Assert.assertNotNull(algo);
+        Assert.assertEquals(length(algo), 5);
+        Assert.assertEquals(run(level, algo), LevelRun.Result.SOLVED);
+    }
+
+    @Test()
+    public void TestFunctions() {
+        Boolean[][] switchMap = Matrix.transpose(new Boolean[][] {
+                {true, false, true, false, true, false, true, false, true}
+        });
+
+        Integer[][] heightMap = Matrix.transpose(new Integer[][] {
+                {0, 0, 0, 0, 0, 0, 0, 0, 0}
+        });
+
+        Level level = new Level(getClass().getSimpleName(), switchMap, heightMap, new Position(0, 0), LevelRun.DIR_RIGHT);
+
+        // s m m s m m s m m s m m s inlined needs 13 actions, f1: s m m with main 1 1 1 1 s only 8
+        RobotAlgo algo = new LevelSolver(13, 4, 4).solve(level);
+
+        Assert.assertNotNull(algo);
+        Assert.assertTrue(length(algo) <= 8, "solution has " + length(algo) + " actions");
+        Assert.assertEquals(run(level, algo), LevelRun.Result.SOLVED);
+    }
+
+    @Test()
+    public void TestHeights() {
+        Boolean[][] switchMap = Matrix.transpose(new Boolean[][] {
+                {false, false, false, false, false},
+                {false, false, false, false, false},
+                {false, false, false, false, true},
+                {false, false, false, false, false},
+                {false, false, false, false, false}
+        });
+
+        Integer[][] heightMap = Matrix.transpose(new Integer[][] {
+                {5, 1, 0, 0, 0},
+                {0, 1, 0, 0, 0},
+                {0, 1, 0, 0, 0},
+                {0, 1, 0, 0, 0},
+                {0, 1, 0, 0, 0}
+        });
+
+        Level level = new Level(getClass().getSimpleName(), switchMap, heightMap, new Position(0, 2), LevelRun.DIR_RIGHT);
+
+        RobotAlgo algo = new LevelSolver(10, 3, 3).solve(level);
+
+        Assert.assertNotNull(algo);
+        Assert.assertEquals(run(level, algo), LevelRun.Result.SOLVED);
+        // j j m m s
+        Assert.assertEquals(length(algo), 5);
+    }
+
+    @Test()
+    public void TestAsymmetricSlots() {
+        Boolean[][] switchMap = Matrix.transpose(new Boolean[][] {
+                {false, false, true}
+        });
+
+        Integer[][] heightMap = Matrix.transpose(new Integer[][] {
+                {0, 0, 0}
+        });
+
+        Level level = new Level(getClass().getSimpleName(), switchMap, heightMap, new Position(0, 0), LevelRun.DIR_RIGHT);
+
+        // only function 2 can hold m m s
+        RobotAlgo algo = new LevelSolver(1, 0, 3).solve(level);
+
+        Assert.assertNotNull(algo);
+        Assert.assertEquals(algo.getF2Group().getActions().size(), 3);
+        Assert.assertEquals(run(level, algo), LevelRun.Result.SOLVED);
+
+        // function 1 too short for the body of function 2, so the pair cannot be swapped
+        algo = new LevelSolver(2, 1, 3).solve(level);
+
+        Assert.assertNotNull(algo);
+        Assert.assertEquals(run(level, algo), LevelRun.Result.SOLVED);
+    }
+
+    @Test()
+    public void TestCallerInFunction1() {
+        Boolean[][] switchMap = Matrix.transpose(new Boolean[][] {
+                {false, false, false, true, false, false, true, false}
+        });
+
+        Integer[][] heightMap = Matrix.transpose(new Integer[][] {
+                {0, 0, 0, 0, 0, 0, 0, 0}
+        });
+
+        Level level = new Level(getClass().getSimpleName(), switchMap, heightMap, new Position(0, 0), LevelRun.DIR_RIGHT);
+
+        // main: 1, f1: 2 2, f2: m m m s, function 2 is too long to be renamed to function 1
+        RobotAlgo algo = new LevelSolver(1, 2, 4).solve(level);
+
+        Assert.assertNotNull(algo);
+        Assert.assertEquals(length(algo), 7);
+        Assert.assertEquals(run(level, algo), LevelRun.Result.SOLVED);
+    }
+
+    @Test()
+    public void TestUnsolvable() {
+        Level level = new Level(getClass().getSimpleName(), new Boolean[][] {{false}, {true}}, new Integer[][] {{0}, {3}}, new Position(0, 0), LevelRun.DIR_RIGHT);
+
+        Assert.assertNull(new LevelSolver(6, 3, 3).solve(level));
+    }
+}
@@ -0,0 +1,122 @@
+package misc;
+
+import core.Level;
+import core.LevelRun;
+import core.MovementGraph;
+import core.Position;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+import util.Matrix;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Random;
+
+public class LevelTest {
+    @Test()
+    public void TestPackedStorage() {
+        Boolean[][] switchMap = Matrix.transpose(new Boolean[][] {
+                {false, true, false},
+                {false, false, false},
+                {true, false, false},
+                {false, false, true}
+        });
+
+        Integer[][] heightMap = Matrix.transpose(new Integer[][] {
+                {0, 1, 2},
+                {3, 4, 5},
+                {6, 7, 8},
+                {-1, 0, 300}
+        });
+
+        Level level = new Level(getClass().getSimpleName(), switchMap, heightMap, new Position(1, 2), LevelRun.DIR_UP);
+
+        Assert.assertEquals(level.getWidth(), 3);
+        Assert.assertEquals(level.getHeight(), 4);
+
+        for (int x = 0; x < level.getWidth(); x++) {
+            for (int y = 0; y < level.getHeight(); y++) {
+                Assert.assertEquals(level.isSwitch(x, y), (boolean) switchMap[x][y]);
+                Assert.assertEquals(level.heightAt(x, y), (int) heightMap[x][y]);
+            }
+        }
+
+        Assert.assertEquals(level.getSwitchCount(), 3);
+        Assert.assertEquals(level.getSwitchOrdinal(1, 0), 0);
+        Assert.assertEquals(level.getSwitchOrdinal(0, 2), 1);
+        Assert.assertEquals(level.getSwitchOrdinal(2, 3), 2);
+        Assert.assertEquals(level.getSwitchOrdinal(0, 0), -1);
+        Assert.assertEquals(level.getSwitchX(1), 0);
+        Assert.assertEquals(level.getSwitchY(1), 2);
+
+        Assert.assertTrue(Arrays.deepEquals(level.getSwitchMap(), switchMap));
+        Assert.assertTrue(Arrays.deepEquals(level.getHeightMap(), heightMap));
+    }
+
+    @Test()
+    public void TestPrimitiveConstructor() {
+        BitSet switches = new BitSet();
+
+        switches.set(1 * 3 + 2);
+
+        short[] heights = {0, 0, 1, 0, 2, 0};
+
+        Level level = new Level(getClass().getSimpleName(), 3, 2, switches, heights, new Position(0, 0), LevelRun.DIR_RIGHT);
+
+        Assert.assertTrue(level.isSwitch(2, 1));
+        Assert.assertFalse(level.isSwitch(1, 1));
+        Assert.assertEquals(level.heightAt(2, 0), 1);
+        Assert.assertEquals(level.heightAt(1, 1), 2);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void TestInvalidDimensions() {
+        new Level(getClass().getSimpleName(), 3, 2, new BitSet(), new short[5], new Position(0, 0), LevelRun.DIR_RIGHT);
+    }
+
+    @Test()
+    public void TestMovementGraph() {
+        Random random = new Random(18);
+        int width = 7;
+        int height = 5;
+        short[] heights = new short[width * height];
+
+        for (int i = 0; i < heights.length; i++) heights[i] = (short) random.nextInt(4);
+
+        BitSet switches = new BitSet();
+
+        for (int i = 0; i < heights.length; i += 3) switches.set(i);
+
+        Level level = new Level(getClass().getSimpleName(), width, height, switches, heights, new Position(0, 0), LevelRun.DIR_RIGHT);
+        MovementGraph graph = level.getMovementGraph();
+
+        Assert.assertSame(level.getMovementGraph(), graph);
+
+        int[] dx = new int[4];
+        int[] dy = new int[4];
+
+        dx[LevelRun.DIR_LEFT] = -1;
+        dx[LevelRun.DIR_RIGHT] = 1;
+        dy[LevelRun.DIR_UP] = -1;
+        dy[LevelRun.DIR_DOWN] = 1;
+
+        for (int x = 0; x < width; x++) {
+            for (int y = 0; y < height; y++) {
+                int tile = graph.tile(x, y);
+
+                Assert.assertEquals(graph.x(tile), x);
+                Assert.assertEquals(graph.y(tile), y);
+                Assert.assertEquals(graph.switchOrdinal(tile), level.getSwitchOrdinal(x, y), "switch at " + x + "/" + y);
+
+                for (int dir = 0; dir < 4; dir++) {
+                    int newX = Math.max(0, Math.min(width - 1, x + dx[dir]));
+                    int newY = Math.max(0, Math.min(height - 1, y + dy[dir]));
+                    int difference = level.heightAt(newX, newY) - level.heightAt(x, y);
+
+                    Assert.assertEquals(graph.move(tile, dir), difference == 0 ? graph.tile(newX, newY) : MovementGraph.BUMP, "move from " + x + "/" + y + " in " + dir);
+                    Assert.assertEquals(graph.jump(tile, dir), Math.abs(difference) == 1 ? graph.tile(newX, newY) : MovementGraph.BUMP, "jump from " + x + "/" + y + " in " + dir);
+                }
+            }
+        }
+    }
+}
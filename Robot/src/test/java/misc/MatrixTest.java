@@ -0,0 +1,154 @@
+package misc;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+import util.Matrix;
+
+import java.util.Arrays;
+import java.util.Random;
+
+public class MatrixTest {
+    private final static int[][] SIZES = {{1, 1}, {1, 7}, {5, 3}, {31, 33}, {32, 32}, {70, 45}, {100, 1}};
+
+    private static int[][] randomInts(Random random, int width, int height) {
+        int[][] matrix = new int[width][height];
+
+        for (int x = 0; x < width; x++) {
+            for (int y = 0; y < height; y++) matrix[x][y] = random.nextInt();
+        }
+
+        return matrix;
+    }
+
+    private static void assertTransposed(int[][] transposed, int[][] matrix) {
+        Assert.assertEquals(transposed.length, matrix[0].length);
+
+        for (int x = 0; x < matrix.length; x++) {
+            for (int y = 0; y < matrix[x].length; y++) {
+                Assert.assertEquals(transposed[y][x], matrix[x][y], "element " + x + "/" + y);
+            }
+        }
+    }
+
+    @Test()
+    public void TestBoxed() {
+        Integer[][] matrix = {{1, null, 3}, {4, 5, 6}};
+        Integer[][] transposed = Matrix.transpose(matrix);
+
+        Assert.assertTrue(Arrays.deepEquals(transposed, new Integer[][] {{1, 4}, {null, 5}, {3, 6}}));
+
+        Number[][] numbers = Matrix.transpose(new Number[][] {{null, 1.5}, {2, 3L}});
+
+        Assert.assertEquals(numbers.getClass(), Number[][].class);
+        Assert.assertTrue(Arrays.deepEquals(numbers, new Number[][] {{null, 2}, {1.5, 3L}}));
+
+        Assert.assertEquals(Matrix.transpose(new Boolean[0][]).length, 0);
+    }
+
+    @Test()
+    public void TestPrimitive() {
+        Random random = new Random(17);
+
+        for (int[] size : SIZES) {
+            int[][] ints = randomInts(random, size[0], size[1]);
+
+            assertTransposed(Matrix.transpose(ints), ints);
+
+            boolean[][] booleans = new boolean[size[0]][size[1]];
+
+            for (int x = 0; x < size[0]; x++) {
+                for (int y = 0; y < size[1]; y++) booleans[x][y] = ints[x][y] < 0;
+            }
+
+            boolean[][] transposed = Matrix.transpose(booleans);
+
+            for (int x = 0; x < size[0]; x++) {
+                for (int y = 0; y < size[1]; y++) Assert.assertEquals(transposed[y][x], booleans[x][y]);
+            }
+        }
+    }
+
+    @Test()
+    public void TestStrided() {
+        Random random = new Random(17);
+
+        for (int[] size : SIZES) {
+            int width = size[0];
+            int height = size[1];
+
+            byte[] src = new byte[3 + width * (height + 2)];
+
+            random.nextBytes(src);
+
+            byte[] dst = new byte[5 + height * (width + 1)];
+
+            Matrix.transpose(src, 3, height + 2, dst, 5, width + 1, width, height);
+
+            for (int x = 0; x < width; x++) {
+                for (int y = 0; y < height; y++) Assert.assertEquals(dst[5 + y * (width + 1) + x], src[3 + x * (height + 2) + y]);
+            }
+
+            byte[] aligned = new byte[width * 1024];
+
+            random.nextBytes(aligned);
+
+            byte[] alignedTransposed = new byte[height * 1024];
+
+            Matrix.transpose(aligned, 0, 1024, alignedTransposed, 0, 1024, width, height);
+
+            for (int x = 0; x < width; x++) {
+                for (int y = 0; y < height; y++) Assert.assertEquals(alignedTransposed[y * 1024 + x], aligned[x * 1024 + y]);
+            }
+
+            byte[] dense = new byte[width * height];
+
+            random.nextBytes(dense);
+
+            byte[] denseTransposed = Matrix.transpose(dense, width, height);
+
+            for (int x = 0; x < width; x++) {
+                for (int y = 0; y < height; y++) Assert.assertEquals(denseTransposed[y * width + x], dense[x * height + y]);
+            }
+        }
+    }
+
+    @Test()
+    public void TestInPlace() {
+        Random random = new Random(17);
+
+        for (int size : new int[] {1, 2, 31, 32, 33, 65}) {
+            int[][] matrix = randomInts(random, size, size);
+            int[][] copy = new int[size][];
+
+            for (int x = 0; x < size; x++) copy[x] = matrix[x].clone();
+
+            Matrix.transposeInPlace(matrix);
+
+            assertTransposed(matrix, copy);
+
+            Integer[][] boxed = new Integer[size][size];
+
+            for (int x = 0; x < size; x++) {
+                for (int y = 0; y < size; y++) boxed[x][y] = copy[x][y];
+            }
+
+            Matrix.transposeInPlace(boxed);
+
+            for (int x = 0; x < size; x++) {
+                for (int y = 0; y < size; y++) Assert.assertEquals((int) boxed[y][x], copy[x][y]);
+            }
+        }
+    }
+
+    @Test()
+    public void TestParallel() {
+        int[][] matrix = randomInts(new Random(17), 1000, (int) (Matrix.PARALLEL_THRESHOLD / 1000) + 7);
+
+        assertTransposed(Matrix.transpose(matrix), matrix);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void TestNotRectangular() {
+        Matrix.transpose(new int[][] {{1, 2}, {3}});
+    }
+}
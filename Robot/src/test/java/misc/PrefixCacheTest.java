@@ -0,0 +1,88 @@
+package misc;
+
+import core.Level;
+import core.LevelEvaluator;
+import core.LevelRun;
+import core.PrefixCache;
+import core.Position;
+import core.RobotAction;
+import core.RobotAlgo;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import javax.annotation.Nonnull;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+public class PrefixCacheTest {
+    private final static RobotAction.Type[] MAIN_ALPHABET = {
+            RobotAction.Type.ROTATE_LEFT, RobotAction.Type.ROTATE_RIGHT, RobotAction.Type.MOVE, RobotAction.Type.MOVE, RobotAction.Type.JUMP, RobotAction.Type.SWITCH, RobotAction.Type.F1, RobotAction.Type.F2
+    };
+
+    @Nonnull
+    private static Level level(@Nonnull Random random) {
+        return LevelFixtures.randomLevel(random, "PrefixCacheTest", 9, 7, 0, 2, 4, new Position(4, 3), LevelRun.DIR_RIGHT);
+    }
+
+    @Nonnull
+    private static RobotAlgo mutate(@Nonnull Random random, @Nonnull RobotAction.Type[] main, int keep) {
+        RobotAlgo algo = new RobotAlgo(new String[0], new String[]{"m", "l", "j", "s"}, new String[]{"1", "r", "m", "1"});
+
+        for (int i = 0; i < main.length; i++) {
+            if (i >= keep) main[i] = MAIN_ALPHABET[random.nextInt(MAIN_ALPHABET.length)];
+
+            algo.getMainGroup().getActions().add(RobotAction.of(main[i]));
+        }
+
+        return algo;
+    }
+
+    private static void assertSame(@Nonnull LevelEvaluator.Evaluation actual, @Nonnull LevelEvaluator.Evaluation expected) {
+        Assert.assertEquals(actual.getResult(), expected.getResult());
+        Assert.assertEquals(actual.getSteps(), expected.getSteps());
+        Assert.assertEquals(actual.getRemainingSwitches(), expected.getRemainingSwitches());
+    }
+
+    @Test()
+    public void TestEquivalence() {
+        Random random = new Random(19);
+        Level level = level(random);
+
+        for (long maxSteps : new long[] {LevelRun.UNLIMITED_STEPS, 150}) {
+            PrefixCache cache = new PrefixCache(level, 64, 8, maxSteps, 3);
+            LevelEvaluator evaluator = new LevelEvaluator(ForkJoinPool.commonPool(), maxSteps, 3);
+            RobotAction.Type[] main = new RobotAction.Type[100];
+
+            mutate(random, main, 0);
+
+            for (int i = 0; i < 200; i++) {
+                RobotAlgo algo = mutate(random, main, random.nextInt(main.length));
+
+                assertSame(cache.evaluate(algo), evaluator.evaluate(level, algo));
+            }
+
+            Assert.assertTrue(cache.getHitCount() > 150, "hits " + cache.getHitCount());
+            Assert.assertTrue(cache.getSkippedSteps() > 0);
+        }
+    }
+
+    @Test()
+    public void TestEviction() {
+        Random random = new Random(19);
+        Level level = level(random);
+        PrefixCache cache = new PrefixCache(level, 2, 4);
+        RobotAction.Type[] main = new RobotAction.Type[12];
+
+        // leaves the checkpoints after 8 and 12 actions
+        cache.evaluate(mutate(random, main, 0));
+        cache.evaluate(mutate(random, main, 9));
+
+        Assert.assertEquals(cache.getHitCount(), 1);
+
+        // the checkpoint after 4 actions has been evicted
+        cache.evaluate(mutate(random, main, 5));
+
+        Assert.assertEquals(cache.getHitCount(), 1);
+        Assert.assertEquals(cache.getMissCount(), 2);
+    }
+}
@@ -0,0 +1,102 @@
+package misc;
+
+import core.Level;
+import core.LevelEvaluator;
+import core.LevelRun;
+import core.Position;
+import core.RobotAction;
+import core.RobotAlgo;
+import core.RobotAlgoArchive;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import javax.annotation.Nonnull;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.stream.Collectors;
+
+public class RobotAlgoArchiveTest {
+    @Nonnull
+    private static String keys(@Nonnull RobotAlgo.Group group) {
+        StringBuilder sb = new StringBuilder();
+
+        for (RobotAction action : group.getActions()) sb.append(action.getType().getKey());
+
+        return sb.toString();
+    }
+
+    @Nonnull
+    private static String describe(@Nonnull RobotAlgo algo) {
+        return algo.getAssociatedLevelName() + "|" + keys(algo.getMainGroup()) + "|" + keys(algo.getF1Group()) + "|" + keys(algo.getF2Group());
+    }
+
+    @Nonnull
+    private static File archive(int count) throws IOException {
+        StringBuilder sb = new StringBuilder();
+
+        for (int i = 0; i < count; i++) {
+            sb.append("Level:\u00e4").append(i).append("\r\n");
+            sb.append("main: m l ").append(i % 3 == 0 ? "1" : "s").append('\n');
+            if (i % 2 == 0) sb.append("\n  f1: j j\n");
+            sb.append("f2: r\n");
+        }
+
+        File file = File.createTempFile("algos", ".txt");
+
+        file.deleteOnExit();
+
+        Files.write(file.toPath(), sb.toString().getBytes(StandardCharsets.UTF_8));
+
+        return file;
+    }
+
+    @Test()
+    public void TestWindows() throws IOException {
+        File file = archive(200);
+
+        List<String> expected = new ArrayList<>();
+
+        for (RobotAlgo algo : new RobotAlgoArchive(file)) expected.add(describe(algo));
+
+        Assert.assertEquals(expected.size(), 200);
+        Assert.assertEquals(expected.get(0), "Level:\u00e40|ml1|jj|r");
+        Assert.assertEquals(expected.get(199), "Level:\u00e4199|mls||r");
+
+        for (long windowSize : new long[] {60, 61, 77, 100, 1000}) {
+            List<String> actual = new RobotAlgoArchive(file, windowSize).stream().map(RobotAlgoArchiveTest::describe).collect(Collectors.toList());
+
+            Assert.assertEquals(actual, expected, "window size " + windowSize);
+        }
+    }
+
+    @Test()
+    public void TestEvaluate() throws IOException {
+        File file = archive(50);
+
+        Level level = new Level(getClass().getSimpleName(), 3, 1, new BitSet(), new short[3], new Position(0, 0), LevelRun.DIR_RIGHT);
+        LevelEvaluator evaluator = new LevelEvaluator();
+
+        List<LevelEvaluator.Evaluation> evaluations = new RobotAlgoArchive(file, 100).stream().parallel().map(algo -> evaluator.evaluate(level, algo)).collect(Collectors.toList());
+
+        Assert.assertEquals(evaluations.size(), 50);
+
+        for (LevelEvaluator.Evaluation evaluation : evaluations) {
+            Assert.assertEquals(evaluation.getResult(), LevelRun.Result.SOLVED);
+        }
+    }
+
+    @Test(expectedExceptions = UncheckedIOException.class)
+    public void TestRecordExceedsWindow() throws IOException {
+        File file = archive(3);
+
+        for (RobotAlgo ignored : new RobotAlgoArchive(file, 10)) {
+            // window too small for a single record
+        }
+    }
+}
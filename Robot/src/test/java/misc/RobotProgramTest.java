@@ -0,0 +1,106 @@
+package misc;
+
+import core.Level;
+import core.LevelRun;
+import core.Position;
+import core.RobotAlgo;
+import core.RobotProgram;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class RobotProgramTest {
+    @Test()
+    public void TestLayout() {
+        RobotAlgo algo = new RobotAlgo(new String[]{"m", "1", "2"}, new String[]{"l"}, new String[]{"1", "j", "s", "r"});
+
+        RobotProgram program = RobotProgram.compile(algo);
+
+        int[] code = program.getCode();
+
+        Assert.assertEquals(program.getF1Address(), 4);
+        Assert.assertEquals(program.getF2Address(), 6);
+        Assert.assertEquals(code.length, 11);
+
+        Assert.assertEquals(RobotProgram.opcode(code[0]), RobotProgram.OP_MOVE);
+        Assert.assertEquals(RobotProgram.opcode(code[1]), RobotProgram.OP_CALL);
+        Assert.assertEquals(RobotProgram.operand(code[1]), program.getF1Address());
+        Assert.assertEquals(RobotProgram.operand(code[2]), program.getF2Address());
+        Assert.assertEquals(RobotProgram.opcode(code[3]), RobotProgram.OP_HALT);
+        Assert.assertEquals(RobotProgram.opcode(code[4]), RobotProgram.OP_ROTATE_LEFT);
+        Assert.assertEquals(RobotProgram.opcode(code[5]), RobotProgram.OP_RETURN);
+        Assert.assertEquals(RobotProgram.operand(code[6]), program.getF1Address());
+        Assert.assertEquals(RobotProgram.opcode(code[7]), RobotProgram.OP_JUMP);
+        Assert.assertEquals(RobotProgram.opcode(code[8]), RobotProgram.OP_SWITCH);
+        Assert.assertEquals(RobotProgram.opcode(code[9]), RobotProgram.OP_ROTATE_RIGHT);
+        Assert.assertEquals(RobotProgram.opcode(code[10]), RobotProgram.OP_RETURN);
+    }
+
+    @Test()
+    public void TestEventOrder() {
+        Level level = new Level(getClass().getSimpleName(), new Boolean[][] {{false}, {false}}, new Integer[][] {{0}, {0}}, new Position(0, 0), LevelRun.DIR_RIGHT);
+
+        RobotAlgo algo = new RobotAlgo(new String[]{"m", "1", "2"}, new String[]{"l"}, new String[]{"1", "m"});
+
+        StringBuilder events = new StringBuilder();
+
+        new LevelRun(level, algo, new LevelRun.ActionHandler() {
+            @Override
+            public void result(boolean success) {
+                events.append("result ").append(success);
+            }
+
+            @Override
+            public void action() {
+                events.append("action;");
+            }
+
+            @Override
+            public void turn(int newDir, int oldDir) {
+                events.append("turn ").append(oldDir).append(">").append(newDir).append(";");
+            }
+
+            @Override
+            public void move(int newX, int newY, int oldX, int oldY) {
+                events.append("move ").append(oldX).append(">").append(newX).append(";");
+            }
+
+            @Override
+            public void useSwitch(int x, int y) {
+                events.append("switch;");
+            }
+        }).exec();
+
+        // calls report their action after the function returned
+        Assert.assertEquals(events.toString(), "move 0>1;action;" +
+                "turn 2>3;action;action;" +
+                "turn 3>0;action;action;move 1>0;action;action;" +
+                "result true");
+    }
+
+    @Test()
+    public void TestFusedLayout() {
+        RobotAlgo algo = new RobotAlgo(new String[]{"m", "m", "m", "l", "r", "l", "1", "m"}, new String[]{"m", "m", "m"}, new String[]{"r", "j", "r", "r", "r", "r", "r"});
+
+        RobotProgram program = RobotProgram.compile(algo);
+
+        int[] code = program.getFusedCode();
+
+        Assert.assertEquals(code.length, 11);
+
+        Assert.assertEquals(RobotProgram.opcode(code[0]), RobotProgram.OP_MOVE_N);
+        Assert.assertEquals(RobotProgram.actionCount(code[0]), 3);
+        // l r l is one counterclockwise turn
+        Assert.assertEquals(code[1], RobotProgram.OP_ROTATE_N | (3 << 2 | 1) << RobotProgram.OP_BITS);
+        Assert.assertEquals(RobotProgram.opcode(code[2]), RobotProgram.OP_CALL);
+        Assert.assertEquals(RobotProgram.operand(code[2]), 5);
+        Assert.assertEquals(RobotProgram.opcode(code[3]), RobotProgram.OP_MOVE);
+        Assert.assertEquals(RobotProgram.opcode(code[4]), RobotProgram.OP_HALT);
+        Assert.assertEquals(RobotProgram.opcode(code[5]), RobotProgram.OP_MOVE_N);
+        Assert.assertEquals(RobotProgram.opcode(code[6]), RobotProgram.OP_RETURN);
+        Assert.assertEquals(RobotProgram.opcode(code[7]), RobotProgram.OP_ROTATE_RIGHT);
+        Assert.assertEquals(RobotProgram.opcode(code[8]), RobotProgram.OP_JUMP);
+        // five clockwise turns are three counterclockwise ones
+        Assert.assertEquals(code[9], RobotProgram.OP_ROTATE_N | (5 << 2 | 3) << RobotProgram.OP_BITS);
+        Assert.assertEquals(RobotProgram.opcode(code[10]), RobotProgram.OP_RETURN);
+    }
+}
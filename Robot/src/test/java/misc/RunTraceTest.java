@@ -0,0 +1,69 @@
+package misc;
+
+import core.Level;
+import core.LevelRun;
+import core.Position;
+import core.RobotAlgo;
+import core.RobotProgram;
+import core.RunTrace;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class RunTraceTest {
+    @Test()
+    public void TestRecord() {
+        Level level = new Level(getClass().getSimpleName(), new Boolean[][] {{false, true}, {true, false}, {false, true}}, new Integer[][] {{0, 0}, {0, 1}, {0, 0}}, new Position(0, 0), LevelRun.DIR_RIGHT);
+
+        RobotProgram program = RobotProgram.compile(new RobotAlgo(new String[]{"m", "s", "1", "r", "m", "s"}, new String[]{"m", "r", "m", "s"}, new String[0]));
+
+        RunTrace trace = RunTrace.record(level, program, 1000, LevelRun.DEFAULT_MAX_DEPTH);
+
+        LevelRun run = new LevelRun(level, program);
+
+        Assert.assertEquals(trace.getResult(), run.exec());
+        Assert.assertEquals(trace.getFrameCount(), run.getSteps() + 1);
+
+        int last = trace.getFrameCount() - 1;
+
+        Assert.assertEquals(trace.getX(0), 0);
+        Assert.assertEquals(trace.getDir(0), LevelRun.DIR_RIGHT);
+        Assert.assertEquals(trace.getX(last), run.getCurX());
+        Assert.assertEquals(trace.getY(last), run.getCurY());
+        Assert.assertEquals(trace.getDir(last), run.getDir());
+
+        // m, s: the switch at (1, 0) is toggled in frame 2
+        Assert.assertEquals(trace.getX(1), 1);
+
+        List<String> toggles = new ArrayList<>();
+
+        trace.toggles(0, 1, (x, y) -> toggles.add(x + "/" + y));
+        Assert.assertTrue(toggles.isEmpty());
+
+        trace.toggles(1, 2, (x, y) -> toggles.add(x + "/" + y));
+        Assert.assertEquals(toggles.toString(), "[1/0]");
+
+        toggles.clear();
+        trace.toggles(0, last, (x, y) -> toggles.add(x + "/" + y));
+
+        List<String> backwards = new ArrayList<>();
+
+        trace.toggles(last, 0, (x, y) -> backwards.add(0, x + "/" + y));
+
+        Assert.assertEquals(backwards, toggles);
+        Assert.assertEquals(toggles.size(), 3);
+    }
+
+    @Test()
+    public void TestTimeout() {
+        Level level = new Level(getClass().getSimpleName(), new Boolean[][] {{false}, {true}, {false}}, new Integer[][] {{0}, {0}, {0}}, new Position(0, 0), LevelRun.DIR_RIGHT);
+
+        RunTrace trace = RunTrace.record(level, RobotProgram.compile(new RobotAlgo(new String[]{"m", "m", "s"}, new String[0], new String[0])), 2, LevelRun.DEFAULT_MAX_DEPTH);
+
+        Assert.assertEquals(trace.getResult(), LevelRun.Result.TIMEOUT);
+        Assert.assertEquals(trace.getFrameCount(), 3);
+        Assert.assertEquals(trace.getX(2), 2);
+    }
+}
@@ -0,0 +1,178 @@
+package misc;
+
+import core.Level;
+import core.LevelRun;
+import core.Position;
+import core.RobotAlgo;
+import core.RobotProgram;
+import core.TraceReader;
+import core.TraceRecorder;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import javax.annotation.Nonnull;
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.Random;
+
+public class TraceTest {
+    private static class EventLog implements LevelRun.ActionHandler {
+        private final StringBuilder _events = new StringBuilder();
+
+        @Override
+        public void result(boolean success) {
+            _events.append("result ").append(success).append(";");
+        }
+
+        @Override
+        public void action() {
+            _events.append("a;");
+        }
+
+        @Override
+        public void turn(int newDir, int oldDir) {
+            _events.append("t").append(oldDir).append(">").append(newDir).append(";");
+        }
+
+        @Override
+        public void move(int newX, int newY, int oldX, int oldY) {
+            _events.append("m").append(oldX).append("/").append(oldY).append(">").append(newX).append("/").append(newY).append(";");
+        }
+
+        @Override
+        public void useSwitch(int x, int y) {
+            _events.append("s").append(x).append("/").append(y).append(";");
+        }
+
+        @Override
+        public void bump(int x, int y) {
+            _events.append("b").append(x).append("/").append(y).append(";");
+        }
+    }
+
+    /**
+     * forwards all events to two handlers
+     */
+    private static LevelRun.ActionHandler both(@Nonnull LevelRun.ActionHandler first, @Nonnull LevelRun.ActionHandler second) {
+        return new LevelRun.ActionHandler() {
+            @Override
+            public void result(boolean success) {
+                first.result(success);
+                second.result(success);
+            }
+
+            @Override
+            public void action() {
+                first.action();
+                second.action();
+            }
+
+            @Override
+            public void turn(int newDir, int oldDir) {
+                first.turn(newDir, oldDir);
+                second.turn(newDir, oldDir);
+            }
+
+            @Override
+            public void move(int newX, int newY, int oldX, int oldY) {
+                first.move(newX, newY, oldX, oldY);
+                second.move(newX, newY, oldX, oldY);
+            }
+
+            @Override
+            public void useSwitch(int x, int y) {
+                first.useSwitch(x, y);
+                second.useSwitch(x, y);
+            }
+
+            @Override
+            public void bump(int x, int y) {
+                first.bump(x, y);
+                second.bump(x, y);
+            }
+        };
+    }
+
+    private final static String[] ALPHABET = {"m", "m", "m", "l", "r", "j", "s", "1", "2"};
+
+    @Nonnull
+    private static String[] randomGroup(@Nonnull Random random, int size) {
+        String[] group = new String[size];
+
+        for (int i = 0; i < size; i++) group[i] = ALPHABET[random.nextInt(ALPHABET.length)];
+
+        return group;
+    }
+
+    @Test()
+    public void TestRoundtrip() {
+        Random random = new Random(23);
+        Level level = LevelFixtures.randomLevel(random, getClass().getSimpleName(), 7, 5, 0, 2, 3, new Position(3, 2), LevelRun.DIR_LEFT);
+
+        TraceRecorder recorder = new TraceRecorder();
+        ByteArrayOutputStream sink = new ByteArrayOutputStream();
+        TraceRecorder streamingRecorder = new TraceRecorder(sink, 16);
+        StringBuilder expected = new StringBuilder();
+        long steps = 0;
+
+        for (int i = 0; i < 100; i++) {
+            RobotProgram program = RobotProgram.compile(new RobotAlgo(randomGroup(random, 20), randomGroup(random, 8), randomGroup(random, 8)));
+            EventLog log = new EventLog();
+
+            LevelRun run = new LevelRun(level, program, both(log, both(recorder, streamingRecorder)));
+
+            run.exec(500, 4);
+
+            expected.append(log._events);
+            steps += run.getSteps();
+        }
+
+        Assert.assertEquals(recorder.getSteps(), steps);
+        Assert.assertEquals(sink.toByteArray(), recorder.toByteArray());
+        Assert.assertEquals(streamingRecorder.getByteCount(), recorder.getByteCount());
+
+        TraceReader reader = new TraceReader(recorder.buffer(), 0, recorder.size());
+        EventLog replayed = new EventLog();
+        int runs = 0;
+
+        while (reader.hasNext()) {
+            reader.replay(level, replayed);
+
+            runs++;
+        }
+
+        Assert.assertEquals(runs, 100);
+        Assert.assertEquals(replayed._events.toString(), expected.toString());
+    }
+
+    @Test()
+    public void TestCompactness() {
+        Level level = new Level(getClass().getSimpleName(), new Boolean[][] {{false}, {true}, {false}}, new Integer[][] {{0}, {0}, {0}}, new Position(0, 0), LevelRun.DIR_RIGHT);
+
+        String[] moves = new String[50];
+
+        Arrays.fill(moves, "m");
+
+        // 50 moves per call, the robot soon stands at the border
+        RobotAlgo algo = new RobotAlgo(new String[]{"1", "1", "1", "1"}, moves, new String[0]);
+
+        TraceRecorder recorder = new TraceRecorder();
+
+        new LevelRun(level, algo, recorder).exec();
+
+        Assert.assertEquals(recorder.getSteps(), 204);
+        Assert.assertTrue(recorder.getByteCount() < 20, recorder.getByteCount() + " bytes");
+
+        LevelRun.Result[] result = {null};
+
+        long replayed = new TraceReader(recorder.toByteArray()).replay(level, new EventLog() {
+            @Override
+            public void result(boolean success) {
+                result[0] = success ? LevelRun.Result.SOLVED : LevelRun.Result.UNSOLVED;
+            }
+        });
+
+        Assert.assertEquals(replayed, 204);
+        Assert.assertEquals(result[0], LevelRun.Result.UNSOLVED);
+    }
+}
@@ -0,0 +1,134 @@
+package misc;
+
+import cli.Verifier;
+import core.BinaryFormat;
+import core.Level;
+import core.LevelRun;
+import core.Position;
+import core.RobotAlgo;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import javax.annotation.Nonnull;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+
+public class VerifierTest {
+    @Nonnull
+    private static File tempFile(@Nonnull String suffix) throws IOException {
+        File file = File.createTempFile("verifier", suffix);
+
+        file.deleteOnExit();
+
+        return file;
+    }
+
+    @Nonnull
+    private static String pack(@Nonnull Level... levels) throws IOException {
+        File file = tempFile(".pack");
+
+        try (DataOutputStream out = new DataOutputStream(new FileOutputStream(file))) {
+            for (Level level : levels) BinaryFormat.writeLevel(out, level);
+
+            // algorithm records in a level pack are skipped
+            BinaryFormat.writeAlgo(out, new RobotAlgo(new String[]{"m"}, new String[0], new String[0]));
+        }
+
+        return file.getPath();
+    }
+
+    @Nonnull
+    private static Level line(@Nonnull String name, boolean switchAtEnd) {
+        return new Level(name, new Boolean[][] {{false}, {false}, {switchAtEnd}}, new Integer[][] {{0}, {0}, {0}}, new Position(0, 0), LevelRun.DIR_RIGHT);
+    }
+
+    /**
+     * log of the last run
+     */
+    private String _log = "";
+
+    private int run(@Nonnull String... args) {
+        ByteArrayOutputStream log = new ByteArrayOutputStream();
+        int status = Verifier.run(args, new PrintStream(log, true));
+
+        _log = new String(log.toByteArray(), StandardCharsets.UTF_8);
+
+        return status;
+    }
+
+    @Test()
+    public void TestVerify() throws IOException {
+        File solutions = tempFile(".txt");
+
+        Files.write(solutions.toPath(), ("A\nmain: m m s\n" +
+                "B\nmain: m s\n" +
+                "Missing\nmain: m\n" +
+                "A\nmain: 1\nf1: 1\n").getBytes(StandardCharsets.UTF_8));
+
+        File results = tempFile(".tsv");
+
+        Assert.assertEquals(run("--out", results.getPath(), "--threads", "2", pack(line("A", true), line("B", true)), solutions.getPath()), Verifier.EXIT_OK);
+
+        List<String> lines = Files.readAllLines(results.toPath(), StandardCharsets.UTF_8);
+
+        Assert.assertEquals(lines.size(), 5);
+        Assert.assertEquals(lines.get(1), "0\tA\tSOLVED\t3\t0");
+        Assert.assertEquals(lines.get(2), "1\tB\tUNSOLVED\t2\t1");
+        Assert.assertEquals(lines.get(3), "2\tMissing\t" + Verifier.MISSING_LEVEL + "\t\t");
+        Assert.assertEquals(lines.get(4), "3\tA\tLOOP\t0\t1");
+
+        // the same corpus verifies identically
+        File again = tempFile(".tsv");
+
+        Assert.assertEquals(run("--out", again.getPath(), "--diff", results.getPath(), pack(line("A", true), line("B", true)), solutions.getPath()), Verifier.EXIT_OK);
+        Assert.assertEquals(Files.readAllLines(again.toPath(), StandardCharsets.UTF_8), lines);
+        Assert.assertTrue(_log.contains("0 outcomes differ"), _log);
+
+        // B without its switch is solved now
+        Assert.assertEquals(run("--out", again.getPath(), "--diff", results.getPath(), pack(line("A", true), line("B", false)), solutions.getPath()), Verifier.EXIT_DIFFERENCES);
+        Assert.assertTrue(_log.contains("+ 1\tB\tSOLVED\t2\t0"), _log);
+        Assert.assertTrue(_log.contains("1 outcomes differ"), _log);
+
+        // unreadable previous results
+        Assert.assertEquals(run("--out", again.getPath(), "--diff", new File(results.getPath() + ".missing").getPath(), pack(line("A", true)), solutions.getPath()), Verifier.EXIT_ERROR);
+        Assert.assertTrue(_log.contains("verification failed"), _log);
+    }
+
+    @Test()
+    public void TestBinarySolutions() throws IOException {
+        File text = tempFile(".txt");
+
+        Files.write(text.toPath(), "A\nmain: m m s\n".getBytes(StandardCharsets.UTF_8));
+
+        File solutions = tempFile(".pack");
+        RobotAlgo algo = new RobotAlgo(text);
+
+        try (DataOutputStream out = new DataOutputStream(new FileOutputStream(solutions))) {
+            for (int i = 0; i < 5000; i++) BinaryFormat.writeAlgo(out, algo);
+        }
+
+        File results = tempFile(".tsv");
+
+        Assert.assertEquals(run("--out", results.getPath(), pack(line("A", true)), solutions.getPath()), Verifier.EXIT_OK);
+
+        List<String> lines = Files.readAllLines(results.toPath(), StandardCharsets.UTF_8);
+
+        Assert.assertEquals(lines.size(), 5001);
+        Assert.assertEquals(lines.get(5000), "4999\tA\tSOLVED\t3\t0");
+    }
+
+    @Test()
+    public void TestUsage() {
+        Assert.assertEquals(run("--threads"), Verifier.EXIT_ERROR);
+        Assert.assertTrue(_log.contains("usage: Verifier"), _log);
+        Assert.assertEquals(run("only-one"), Verifier.EXIT_ERROR);
+        Assert.assertEquals(run("no-such-pack", "no-such-solutions"), Verifier.EXIT_ERROR);
+    }
+}